@@ -1,5 +1,6 @@
 package core;
 
+import java.util.Arrays;
 
 public class CoreConstants {
 	// Uses the index based on the piece type to return the file name for the
@@ -8,6 +9,8 @@ public class CoreConstants {
 			"wb", "bb", "wq", "bq", "wk", "bk" };
 	// Max number of moves in a game
 	public static final int MAX_MOVES = 1024;
+	// Upper bound on the number of moves available in a single position
+	public static final int MAX_MOVES_PER_POSITION = 256;
 	// ID values for each piece type
 	public static final byte WHITE_PAWN = 2;
 	public static final byte BLACK_PAWN = 3;
@@ -57,18 +60,52 @@ public class CoreConstants {
 	public static final byte wKSide = 2;
 	public static final byte bQSide = 3;
 	public static final byte bKSide = 4;
+	// Initial and final position of the rook for each type of castling,
+	// indexed by the castling flags above
+	public static final int[] castlingRookFrom = { -1, 0, 7, 56, 63 };
+	public static final int[] castlingRookTo = { -1, 3, 5, 59, 61 };
+	// Castling rights are kept as a 4 bit mask, one bit for each type of
+	// castling, again indexed by the castling flags
+	public static final int[] castlingRight = { 0, 0b0001, 0b0010, 0b0100, 0b1000 };
+	public static final int ALL_CASTLING_RIGHTS = 0b1111;
+	// Squares which must be empty between the king and the rook
+	public static final long[] castlingEmptySquares = { 0, 0x0EL, 0x60L, 0x0EL << 56,
+			0x60L << 56 };
+	// Squares the king passes through or lands on, which cannot be attacked
+	public static final long[] castlingKingPath = { 0, 0x0CL, 0x60L, 0x0CL << 56, 0x60L << 56 };
+	// Rights kept after a move from or to each square, moving the king or a
+	// rook, or capturing a rook, loses the rights which involve it
+	static final int[] castlingRightsMask = new int[64];
+
+	static {
+		Arrays.fill(castlingRightsMask, ALL_CASTLING_RIGHTS);
+		castlingRightsMask[0] &= ~castlingRight[wQSide];
+		castlingRightsMask[7] &= ~castlingRight[wKSide];
+		castlingRightsMask[4] &= ~(castlingRight[wQSide] | castlingRight[wKSide]);
+		castlingRightsMask[56] &= ~castlingRight[bQSide];
+		castlingRightsMask[63] &= ~castlingRight[bKSide];
+		castlingRightsMask[60] &= ~(castlingRight[bQSide] | castlingRight[bKSide]);
+	}
 
 	// Lookup tables
-	public static long KNIGHT_TABLE[] = new long[64];
-	public static long KING_TABLE[] = new long[64];
-	public static long PAWN_ATTACKS_TABLE[][] = new long[2][64];;
+	// These and the other tables filled by the static initialiser below are
+	// package-private, so only the core package can reach them. They are only
+	// written while the initialiser fills them, so every thread can share
+	// them
+	static final long KNIGHT_TABLE[] = new long[64];
+	static final long KING_TABLE[] = new long[64];
+	static final long PAWN_ATTACKS_TABLE[][] = new long[2][64];
+	// Squares strictly between two squares and the full line through two
+	// squares, used to find pins and to block checks
+	static final long BETWEEN[][] = new long[64][64];
+	static final long LINE[][] = new long[64][64];
 
 	// Occupancy Mask
 	// Manipulated from http://www.rivalchess.com/magic-bitboards/ to match my
 	// board representation
 	// Index is the position of the rook/bishop and returns all the positions
 	// which could block the rook/bishop from moving
-	public static final long occupancyMaskRook[] = { 0x101010101017eL, 0x202020202027cL,
+	static final long occupancyMaskRook[] = { 0x101010101017eL, 0x202020202027cL,
 			0x404040404047aL, 0x8080808080876L, 0x1010101010106eL, 0x2020202020205eL,
 			0x4040404040403eL, 0x8080808080807eL, 0x1010101017e00L, 0x2020202027c00L,
 			0x4040404047a00L, 0x8080808087600L, 0x10101010106e00L, 0x20202020205e00L,
@@ -85,7 +122,7 @@ public class CoreConstants {
 			0x3e404040404000L, 0x7e808080808000L, 0x7e01010101010100L, 0x7c02020202020200L,
 			0x7a04040404040400L, 0x7608080808080800L, 0x6e10101010101000L, 0x5e20202020202000L,
 			0x3e40404040404000L, 0x7e80808080808000L };
-	public static final long occupancyMaskBishop[] = { 0x40201008040200L, 0x402010080400L,
+	static final long occupancyMaskBishop[] = { 0x40201008040200L, 0x402010080400L,
 			0x4020100a00L, 0x40221400L, 0x2442800L, 0x204085000L, 0x20408102000L, 0x2040810204000L,
 			0x20100804020000L, 0x40201008040000L, 0x4020100a0000L, 0x4022140000L, 0x244280000L,
 			0x20408500000L, 0x2040810200000L, 0x4081020400000L, 0x10080402000200L,
@@ -103,7 +140,7 @@ public class CoreConstants {
 	// Magic number is used to access a lookup table with pre-computed moves
 	// These pre-computed values were generated by rival chess and were included
 	// in their tutorial
-	public static final long magicNumbersRook[] = { 0xa180022080400230L, 0x40100040022000L,
+	static final long magicNumbersRook[] = { 0xa180022080400230L, 0x40100040022000L,
 			0x80088020001002L, 0x80080280841000L, 0x4200042010460008L, 0x4800a0003040080L,
 			0x400110082041008L, 0x8000a041000880L, 0x10138001a080c010L, 0x804008200480L,
 			0x10011012000c0L, 0x22004128102200L, 0x200081201200cL, 0x202a001048460004L,
@@ -120,7 +157,7 @@ public class CoreConstants {
 			0x10301802830400L, 0x332a4081140200L, 0x8080010a601241L, 0x1008010400021L,
 			0x4082001007241L, 0x211009001200509L, 0x8015001002441801L, 0x801000804000603L,
 			0xc0900220024a401L, 0x1000200608243L };
-	public static final long magicNumbersBishop[] = { 0x2910054208004104L, 0x2100630a7020180L,
+	static final long magicNumbersBishop[] = { 0x2910054208004104L, 0x2100630a7020180L,
 			0x5822022042000000L, 0x2ca804a100200020L, 0x204042200000900L, 0x2002121024000002L,
 			0x80404104202000e8L, 0x812a020205010840L, 0x8005181184080048L, 0x1001c20208010101L,
 			0x1001080204002100L, 0x1810080489021800L, 0x62040420010a00L, 0x5028043004300020L,
@@ -138,24 +175,40 @@ public class CoreConstants {
 			0x40c000022013020L, 0x2000104000420600L, 0x400000260142410L, 0x800633408100500L,
 			0x2404080a1410L, 0x138200122002900L };
 	// Shifts are used with magic numbers to index pre-computed moves
-	public static final long magicShiftRook[] = { 52, 53, 53, 53, 53, 53, 53, 52, 53, 54, 54, 54,
+	static final long magicShiftRook[] = { 52, 53, 53, 53, 53, 53, 53, 52, 53, 54, 54, 54,
 			54, 54, 54, 53, 53, 54, 54, 54, 54, 54, 54, 53, 53, 54, 54, 54, 54, 54, 54, 53, 53, 54,
 			54, 54, 54, 54, 54, 53, 53, 54, 54, 54, 54, 54, 54, 53, 53, 54, 54, 54, 54, 54, 54, 53,
 			52, 53, 53, 53, 53, 53, 53, 52 };
-	public static final long magicShiftBishop[] = { 58, 59, 59, 59, 59, 59, 59, 58, 59, 59, 59, 59,
+	static final long magicShiftBishop[] = { 58, 59, 59, 59, 59, 59, 59, 58, 59, 59, 59, 59,
 			59, 59, 59, 59, 59, 59, 57, 57, 57, 57, 59, 59, 59, 59, 57, 55, 55, 57, 59, 59, 59, 59,
 			57, 55, 55, 57, 59, 59, 59, 59, 57, 57, 57, 57, 59, 59, 59, 59, 59, 59, 59, 59, 59, 59,
 			58, 59, 59, 59, 59, 59, 59, 58 };
-	public static long occupancyVariation[][] = new long[64][4096];
 	// Lookup table filled at running of program
-	public static long magicMovesRook[][] = new long[64][4096];
-	public static long magicMovesBishop[][] = new long[64][1024];
+	// The rook and then bishop moves for every square are packed into a
+	// single array, each square only takes the 2^(64 - shift) entries its
+	// magic number can index, starting from its offset
+	static final int magicOffsetRook[] = new int[64];
+	static final int magicOffsetBishop[] = new int[64];
+	static final long magicMoves[];
+
+	static {
+		int offset = 0;
+		for (int index = 0; index < 64; index++) {
+			magicOffsetRook[index] = offset;
+			offset += 1 << (64 - magicShiftRook[index]);
+		}
+		for (int index = 0; index < 64; index++) {
+			magicOffsetBishop[index] = offset;
+			offset += 1 << (64 - magicShiftBishop[index]);
+		}
+		magicMoves = new long[offset];
+	}
 
 	// Hamming Weight constants
-	public static long m1 = 0x5555555555555555L;
-	public static long m2 = 0x3333333333333333L;
-	public static long m4 = 0x0f0f0f0f0f0f0f0fL;
-	public static long h01 = 0x0101010101010101L;
+	public static final long m1 = 0x5555555555555555L;
+	public static final long m2 = 0x3333333333333333L;
+	public static final long m4 = 0x0f0f0f0f0f0f0f0fL;
+	public static final long h01 = 0x0101010101010101L;
 
 	// Used to convert Move to PGN notation
 	public static String[] indexToAlgebraic = { "a1", "b1", "c1", "d1", "e1", "f1", "g1", "h1",
@@ -167,5 +220,64 @@ public class CoreConstants {
 	public static String[] pieceToLetterFen = { "", "", "P", "p", "N", "n", "R", "r", "B", "b", "Q",
 			"q", "K", "k" };
 
-	public static int[][] zobristTable = new int[64][12];
+	// Zobrist keys, XORed together to give a 64 bit key for the position
+	// $\label{code:initZob}$
+	// A key for each piece on each square, the castling keys combine a key
+	// for each castling right (so no rights is 0) and the en passant keys
+	// depend on the file of the en passant square
+	static final long[][] zobristPieces = new long[14][64];
+	static final long[] zobristCastling = new long[16];
+	static final long[] zobristEnPassant = new long[8];
+	public static final long zobristSide;
+
+	// Time taken to fill the lookup tables in nanoseconds
+	public static final long initialisationTime;
+
+	// All the lookup tables are filled here, so it happens exactly once, the
+	// first time CoreConstants is used, and the JVM guarantees every thread
+	// sees the filled tables without any locking $\label{code:initTables}$
+	// Must stay at the end of the class so the tables above exist
+	static {
+		long startTime = System.nanoTime();
+		MoveGen.initialiseKnightLookupTable();
+		MoveGen.initialiseKingLookupTable();
+		MoveGen.initialisePawnLookupTable();
+		MoveGen.initialiseRayTables();
+		// Lookup tables for rooks (true) and bishops (false)
+		MoveGen.generateMoveDatabase(true);
+		MoveGen.generateMoveDatabase(false);
+		// Initialise the hash function from a fixed seed, so that keys are the
+		// same every run
+		long seed = 0x9E37_79B9_7F4A_7C15L;
+		for (int piece = WHITE_PAWN; piece <= BLACK_KING; piece++) {
+			for (int index = 0; index < 64; index++) {
+				zobristPieces[piece][index] = seed = nextRandom(seed);
+			}
+		}
+		for (int right = 0; right < 4; right++) {
+			long rightKey = seed = nextRandom(seed);
+			for (int rights = 0; rights < 16; rights++) {
+				if ((rights & (1 << right)) != 0) {
+					zobristCastling[rights] ^= rightKey;
+				}
+			}
+		}
+		for (int file = 0; file < 8; file++) {
+			zobristEnPassant[file] = seed = nextRandom(seed);
+		}
+		zobristSide = nextRandom(seed);
+		initialisationTime = System.nanoTime() - startTime;
+	}
+
+	// xorshift64*, see https://en.wikipedia.org/wiki/Xorshift
+	static long nextRandom(long x) {
+		x ^= x >>> 12;
+		x ^= x << 25;
+		x ^= x >>> 27;
+		return x * 0x2545_F491_4F6C_DD1DL;
+	}
+
+	// Does nothing, calling it makes sure the static initialiser has run
+	static void initialise() {
+	}
 }
@@ -1,68 +1,78 @@
 package core;
 
-import java.util.Random;
-
 public class Game {
 
-	private static volatile Game gameInstance = new Game();
-
 	private long[] bitboards = new long[14];
 	private byte[] board = new byte[64];
 	private long[] epTargetSquares = new long[2];
-	// Castling flag
-	// WHITE
-	// wQueensideLegal | wKingsideLegal | wKingMoved | wRookQueensideMoved |
-	// wRookKingsideMoved
-	// BLACK
-	// bQueensideLegal | bKingsideLegal | bKingMoved | bRookQueensideMoved |
-	// bRookKingsideMoved
-	private long[] castling = new long[] { 0L, 0L };
+	// Castling rights
+	// bKingside | bQueenside | wKingside | wQueenside
+	// A right is only lost once the king or rook involved moves or is
+	// captured, whether castling is actually possible (empty and unattacked
+	// squares) is decided by the move generator
+	private int castlingRights = 0;
 	public int toMove = CoreConstants.WHITE;
 	int moveNumber = 0;
+	// Zobrist key of the position, updated as pieces are added and removed
+	// and as the side, castling rights and en passant squares change
+	private long key = 0;
+	// Recomputing the key from scratch after every move and undo checks the
+	// incremental updates, enabled with -Dmortimer.verifyKeys=true
+	private static final boolean VERIFY_KEYS = Boolean.getBoolean("mortimer.verifyKeys");
 
 	// History arrays are based on tutorial by Alberto Ruibal
 	// https://github.com/albertoruibal/carballo/blob/master/core/src/main/java/com/alonsoruibal/chess/Board.java
-	public long[] moveHistory;
-	public long[] whiteHistory;
-	public long[] blackHistory;
-	public long[][] pawnHistory;
-	public long[][] rookHistory;
-	public long[][] queenHistory;
-	public long[][] bishopHistory;
-	public long[][] knightHistory;
-	public long[][] kingHistory;
-	public byte[][] boardHistory;
-	public long[][] castlingHistory;
-	// Stores en passant target squares for each side
-	public long[][] epHistory;
-
-	private Game() {
+	// Only the moves played and the state they cannot restore are stored
+	public int[] moveHistory;
+	// Castling rights before each move
+	public int[] castlingHistory;
+	// En passant target squares of both sides
+	public long[] epHistory;
+	// Keys of the positions before each move, used to restore the key on undo
+	public long[] keyHistory;
+	// Scratch buffer for the moves generated by checkmate and stalemate
+	private int[] moveBuffer = new int[CoreConstants.MAX_MOVES_PER_POSITION];
+
+	// Each game is an independent position, e.g. each search thread can have
+	// a board of its own. Starts with an empty board
+	public Game() {
 		// Instantiate the history arrays
-		moveHistory = new long[CoreConstants.MAX_MOVES];
-		whiteHistory = new long[CoreConstants.MAX_MOVES];
-		blackHistory = new long[CoreConstants.MAX_MOVES];
-		pawnHistory = new long[2][CoreConstants.MAX_MOVES];
-		rookHistory = new long[2][CoreConstants.MAX_MOVES];
-		queenHistory = new long[2][CoreConstants.MAX_MOVES];
-		bishopHistory = new long[2][CoreConstants.MAX_MOVES];
-		knightHistory = new long[2][CoreConstants.MAX_MOVES];
-		kingHistory = new long[2][CoreConstants.MAX_MOVES];
-		epHistory = new long[2][CoreConstants.MAX_MOVES];
-		boardHistory = new byte[CoreConstants.MAX_MOVES][64];
-		epHistory = new long[2][CoreConstants.MAX_MOVES];
-		castlingHistory = new long[2][CoreConstants.MAX_MOVES];
-	}
-
-	public static Game getGameInstance() {
-		if (gameInstance == null)
-			gameInstance = new Game();
-		return gameInstance;
+		moveHistory = new int[CoreConstants.MAX_MOVES];
+		castlingHistory = new int[CoreConstants.MAX_MOVES];
+		epHistory = new long[CoreConstants.MAX_MOVES];
+		keyHistory = new long[CoreConstants.MAX_MOVES];
+	}
+
+	public Game(Game other) {
+		this();
+		copyFrom(other);
+	}
+
+	// Makes this game a copy of another, including the history so that the
+	// moves already played can still be undone. Nothing is allocated, so a
+	// board can be reused for each search
+	public void copyFrom(Game other) {
+		System.arraycopy(other.board, 0, board, 0, 64);
+		System.arraycopy(other.bitboards, 0, bitboards, 0, 14);
+		System.arraycopy(other.epTargetSquares, 0, epTargetSquares, 0, 2);
+		castlingRights = other.castlingRights;
+		toMove = other.toMove;
+		key = other.key;
+		moveNumber = other.moveNumber;
+		System.arraycopy(other.moveHistory, 0, moveHistory, 0, moveNumber);
+		System.arraycopy(other.castlingHistory, 0, castlingHistory, 0, moveNumber);
+		System.arraycopy(other.epHistory, 0, epHistory, 0, moveNumber);
+		System.arraycopy(other.keyHistory, 0, keyHistory, 0, moveNumber);
 	}
 
 	public void loadFen(String board) {
 		moveNumber = 0;
 		// Start by resetting the board $\label{code:loadFen}$
 		reset();
+		// The fields after the piece placement are optional, they are the side
+		// to move, castling rights and en passant square
+		String[] fields = board.trim().split(" +");
+		board = fields[0];
 		// "/" represent end of row on the board
 		board = board.replace("/", "");
 		// Replace number of empty squares with spaces
@@ -109,10 +119,37 @@ public class Game {
 		}
 		// Check if the user included an additional character indicating who is
 		// next to move
-		if (index + 1 < board.length()) {
-			char toMoveChar = board.charAt(index + 1);
+		if (fields.length > 1) {
+			char toMoveChar = fields[1].charAt(0);
 			toMove = (toMoveChar == 'w') ? 0 : 1;
 		}
+		if (fields.length > 2) {
+			// Castling rights e.g. KQkq or - for none
+			for (char right : fields[2].toCharArray()) {
+				// Order matches the castling flags
+				int castle = "QKqk".indexOf(right) + 1;
+				if (castle != CoreConstants.noCastle) {
+					castlingRights |= CoreConstants.castlingRight[castle];
+				}
+			}
+		} else {
+			// Without the castling field assume a king and rook on their
+			// original squares haven't moved
+			for (byte castle = CoreConstants.wQSide; castle <= CoreConstants.bKSide; castle++) {
+				int side = (castle <= CoreConstants.wKSide) ? 0 : 1;
+				if (this.board[(side == 0) ? 4 : 60] == CoreConstants.WHITE_KING + side
+						&& this.board[CoreConstants.castlingRookFrom[castle]]
+								== CoreConstants.WHITE_ROOK + side) {
+					castlingRights |= CoreConstants.castlingRight[castle];
+				}
+			}
+		}
+		if (fields.length > 3 && fields[3].length() == 2) {
+			// The en passant square can be captured onto by the side to move
+			int epIndex = (fields[3].charAt(1) - '1') * 8 + (fields[3].charAt(0) - 'a');
+			epTargetSquares[toMove] = 1L << epIndex;
+		}
+		key = computeKey();
 	}
 
 	public String exportFen() {
@@ -158,6 +195,7 @@ public class Game {
 		// Add the board to the bitboard for its piece and colour
 		bitboards[piece & 1] |= bitboard;
 		bitboards[piece] |= bitboard;
+		key ^= CoreConstants.zobristPieces[piece][square];
 	}
 
 	public void removePiece(int square) {
@@ -168,6 +206,7 @@ public class Game {
 		long bitboard = ~(1L << square);
 		bitboards[piece & 1] &= bitboard;
 		bitboards[piece] &= bitboard;
+		key ^= CoreConstants.zobristPieces[piece][square];
 	}
 
 	void reset() {
@@ -178,282 +217,155 @@ public class Game {
 		for (int i = 0; i < 14; i++) {
 			bitboards[i] = 0;
 		}
+		castlingRights = 0;
+		epTargetSquares[0] = 0L;
+		epTargetSquares[1] = 0L;
 
 		toMove = CoreConstants.WHITE;
+		key = 0;
 	}
 
 	public void move(Move move) {
-		// Store the current board $\label{code:bitboardmove}$
-		storeHistory();
+		move(move.getEncoding());
+	}
+
+	// Moves are packed ints, see MoveEncoding for the layout
+	// Only the state which cannot be recovered from the move itself is stored
+	// (castling flags and en passant squares), the pieces are moved
+	// incrementally and moved back by undo $\label{code:bitboardmove}$
+	public void move(int move) {
+		moveHistory[moveNumber] = move;
+		castlingHistory[moveNumber] = castlingRights;
+		epHistory[moveNumber] = epTargetSquares[0] | epTargetSquares[1];
+		keyHistory[moveNumber] = key;
 		moveNumber++;
 		// Switch the moving player
 		toMove = (toMove == 0) ? 1 : 0;
-
-		int finalIndex = move.getFinalPos();
-		int oldIndex = move.getOldPos();
-		byte piece = board[oldIndex];
-		int side = piece % 2;
-		int enemy = (piece == 0) ? 1 : 0;
-		// If the piece is moving to a non-empty square then it is a capture
-		// move
-		boolean capture = board[finalIndex] != CoreConstants.EMPTY;
-
-		// Update rook castling flag
-		// If a rook just move then record this in the flag
-		// Makes sure that castling is only allowed at the right time
-		if (piece == CoreConstants.WHITE_ROOK) {
-			if (oldIndex == 0) {
-				castling[side] |= 0b010;
-			}
-			if (oldIndex == 7) {
-				castling[side] |= 0b001;
-			}
-		} else if (piece == CoreConstants.BLACK_ROOK) {
-			if (oldIndex == 56) {
-				castling[side] |= 0b010;
-			}
-			if (oldIndex == 63) {
-				castling[side] |= 0b001;
-			}
-			// If a king is moving edit the castling flag accordingly
-		} else if (piece == CoreConstants.WHITE_KING) {
-			castling[side] |= 0b100;
-		} else if (piece == CoreConstants.BLACK_KING) {
-			castling[side] |= 0b100;
-		}
-		// Remove the piece being captured
-		byte capturedPiece = board[finalIndex];
-		if (capture && capturedPiece != CoreConstants.WHITE_KING
-				&& capturedPiece != CoreConstants.BLACK_KING) {
-			removePiece(finalIndex);
-		}
-		// Remove the piece 'behind' the pawn if it is an en passant move
-		if (move.isEnPassant()) {
+		key ^= CoreConstants.zobristSide;
+
+		int finalIndex = MoveEncoding.getTo(move);
+		int oldIndex = MoveEncoding.getFrom(move);
+		byte piece = (byte) MoveEncoding.getPiece(move);
+		int side = piece & 1;
+		int enemy = side ^ 1;
+
+		// Moving the king or a rook, or capturing a rook, loses castling
+		// rights $\label{code:castling}$
+		key ^= CoreConstants.zobristCastling[castlingRights];
+		castlingRights &= CoreConstants.castlingRightsMask[oldIndex]
+				& CoreConstants.castlingRightsMask[finalIndex];
+		key ^= CoreConstants.zobristCastling[castlingRights];
+		// Remove the piece being captured, for en passant this is the piece
+		// 'behind' the pawn
+		if (MoveEncoding.isEnPassant(move)) {
 			int offset = (side == 0) ? -8 : 8;
 			removePiece(finalIndex + offset);
+		} else if (MoveEncoding.isCapture(move)) {
+			removePiece(finalIndex);
 		}
-		if (finalIndex >= 0 && finalIndex < 64) {
-			// Otherwise simply remove the piece being moved
-			removePiece(oldIndex);
-			// Then readd the piece at the new position
-			addPiece(piece, finalIndex);
-		}
-		// Update the castling flags for both players
-		updateCastlingFlags(side);
-		updateCastlingFlags(enemy);
+		// Move the piece, a promoting pawn is replaced by the piece it
+		// promotes to
+		removePiece(oldIndex);
+		addPiece(MoveEncoding.isPromotion(move) ? (byte) MoveEncoding.getPromotion(move) : piece,
+				finalIndex);
 
-		// If a pawn makes a double push, store the square behind as being
-		// attackable using en passant $\label{code:addtoeparray}$
-		epTargetSquares[enemy] = 0;
-		if (piece == CoreConstants.WHITE_PAWN) {
-			if (finalIndex - oldIndex == 16) {
-				int square = finalIndex - 8;
-				epTargetSquares[1] = 1L << square;
-			}
-		} else if (piece == CoreConstants.BLACK_PAWN) {
-			if (finalIndex - oldIndex == -16) {
-				int square = finalIndex + 8;
-				epTargetSquares[0] = 1L << square;
-			}
-		}
 		// Check if the current move is a castling move
-		// If so check which type of castlin g and move the rook accordingly
-		byte castle = move.getCastlingFlag();
-		if (castle != 0) {
-			int rookOldIndex = 0;
-			int rookFinalIndex = 0;
-			switch (castle) {
-			// Queenside white
-			case CoreConstants.wQSide:
-				rookOldIndex = 0;
-				rookFinalIndex = 3;
-				break;
-			// Kingside white
-			case CoreConstants.wKSide:
-				rookOldIndex = 7;
-				rookFinalIndex = 5;
-				break;
-			// Queenside black
-			case CoreConstants.bQSide:
-				rookOldIndex = 56;
-				rookFinalIndex = 59;
-				break;
-			// Kingside black
-			case CoreConstants.bKSide:
-				rookOldIndex = 63;
-				rookFinalIndex = 61;
-				break;
-			}
-			// Remove the rook being moved
-			removePiece(rookOldIndex);
-			// Move it to its new position
-			addPiece((castle <= 2) ? CoreConstants.WHITE_ROOK : CoreConstants.BLACK_ROOK,
-					rookFinalIndex);
+		// If so move the rook accordingly
+		byte castle = MoveEncoding.getCastling(move);
+		if (castle != CoreConstants.noCastle) {
+			removePiece(CoreConstants.castlingRookFrom[castle]);
+			addPiece((byte) (CoreConstants.WHITE_ROOK + side), CoreConstants.castlingRookTo[castle]);
 		}
 
-	}
-
-	public void storeHistory() {
-		// Add the relevant bitboards to the history
-		whiteHistory[moveNumber] = bitboards[0];
-		blackHistory[moveNumber] = bitboards[1];
-		pawnHistory[0][moveNumber] = bitboards[2];
-		pawnHistory[1][moveNumber] = bitboards[3];
-		knightHistory[0][moveNumber] = bitboards[4];
-		knightHistory[1][moveNumber] = bitboards[5];
-		rookHistory[0][moveNumber] = bitboards[6];
-		rookHistory[1][moveNumber] = bitboards[7];
-		bishopHistory[0][moveNumber] = bitboards[8];
-		bishopHistory[1][moveNumber] = bitboards[9];
-		queenHistory[0][moveNumber] = bitboards[10];
-		queenHistory[1][moveNumber] = bitboards[11];
-		kingHistory[0][moveNumber] = bitboards[12];
-		kingHistory[1][moveNumber] = bitboards[13];
-		for(int i = 0; i < 64; i++){
-			boardHistory[moveNumber][i] = board[i];
+		// If a pawn makes a double push, store the square behind as being
+		// attackable using en passant, any previous en passant square has now
+		// expired $\label{code:addtoeparray}$
+		key ^= enPassantKey(epTargetSquares[0] | epTargetSquares[1]);
+		epTargetSquares[0] = 0;
+		epTargetSquares[1] = 0;
+		if (MoveEncoding.isDoublePush(move)) {
+			epTargetSquares[enemy] = 1L << ((oldIndex + finalIndex) / 2);
+			key ^= enPassantKey(epTargetSquares[enemy]);
+		}
+		if (VERIFY_KEYS) {
+			verifyKey();
 		}
-		epHistory[0][moveNumber] = epTargetSquares[0];
-		epHistory[1][moveNumber] = epTargetSquares[1];
-		castlingHistory[0][moveNumber] = castling[0];
-		castlingHistory[1][moveNumber] = castling[1];
 	}
 
 	public void undo() {
-		// Update the current bitboards from the history arrays
+		// Reverse the last move using the information packed in the move
 		// $\label{code:undo}$
 		moveNumber--;
-		bitboards[0] = whiteHistory[moveNumber];
-		bitboards[1] = blackHistory[moveNumber];
-		bitboards[2] = pawnHistory[0][moveNumber];
-		bitboards[3] = pawnHistory[1][moveNumber];
-		bitboards[4] = knightHistory[0][moveNumber];
-		bitboards[5] = knightHistory[1][moveNumber];
-		bitboards[6] = rookHistory[0][moveNumber];
-		bitboards[7] = rookHistory[1][moveNumber];
-		bitboards[8] = bishopHistory[0][moveNumber];
-		bitboards[9] = bishopHistory[1][moveNumber];
-		bitboards[10] = queenHistory[0][moveNumber];
-		bitboards[11] = queenHistory[1][moveNumber];
-		bitboards[12] = kingHistory[0][moveNumber];
-		bitboards[13] = kingHistory[1][moveNumber];
-		for(int i = 0; i < 64; i++){
-			board[i] = boardHistory[moveNumber][i];
+		int move = moveHistory[moveNumber];
+		int finalIndex = MoveEncoding.getTo(move);
+		int oldIndex = MoveEncoding.getFrom(move);
+		byte piece = (byte) MoveEncoding.getPiece(move);
+		int side = piece & 1;
+
+		// Move the rook back if the move was castling
+		byte castle = MoveEncoding.getCastling(move);
+		if (castle != CoreConstants.noCastle) {
+			removePiece(CoreConstants.castlingRookTo[castle]);
+			addPiece((byte) (CoreConstants.WHITE_ROOK + side),
+					CoreConstants.castlingRookFrom[castle]);
 		}
-		epTargetSquares[0] = epHistory[0][moveNumber];
-		epTargetSquares[1] = epHistory[1][moveNumber];
-		castling[0] = castlingHistory[0][moveNumber];
-		castling[1] = castlingHistory[1][moveNumber];
+		// Move the piece back, this also turns a promoted piece back into a
+		// pawn
+		removePiece(finalIndex);
+		addPiece(piece, oldIndex);
+		// Put back the captured piece
+		if (MoveEncoding.isEnPassant(move)) {
+			int offset = (side == 0) ? -8 : 8;
+			addPiece((byte) MoveEncoding.getCaptured(move), finalIndex + offset);
+		} else if (MoveEncoding.isCapture(move)) {
+			addPiece((byte) MoveEncoding.getCaptured(move), finalIndex);
+		}
+
+		castlingRights = castlingHistory[moveNumber];
+		// White can only capture en passant onto the sixth row and black onto
+		// the third row
+		long ep = epHistory[moveNumber];
+		epTargetSquares[0] = ep & CoreConstants.ROW_6;
+		epTargetSquares[1] = ep & CoreConstants.ROW_3;
 		// Change who's next to move
 		toMove = (toMove == 0) ? 1 : 0;
+		// The pieces moving back have restored the piece keys, but restoring
+		// the whole key is simpler
+		key = keyHistory[moveNumber];
+		if (VERIFY_KEYS) {
+			verifyKey();
+		}
+	}
 
+	// Passes the move to the other side without moving a piece, used by the
+	// search for null move pruning. It is stored in the history as NO_MOVE so
+	// it must be taken back with undoNullMove
+	public void makeNullMove() {
+		moveHistory[moveNumber] = MoveEncoding.NO_MOVE;
+		castlingHistory[moveNumber] = castlingRights;
+		epHistory[moveNumber] = epTargetSquares[0] | epTargetSquares[1];
+		keyHistory[moveNumber] = key;
+		moveNumber++;
+		toMove = (toMove == 0) ? 1 : 0;
+		key ^= CoreConstants.zobristSide;
+		// The chance to capture en passant is lost
+		key ^= enPassantKey(epTargetSquares[0] | epTargetSquares[1]);
+		epTargetSquares[0] = 0;
+		epTargetSquares[1] = 0;
+		if (VERIFY_KEYS) {
+			verifyKey();
+		}
 	}
 
-	// Function takes the side as input and calculates if castling is legal
-	// $\label{code:castling}$
-	void updateCastlingFlags(int side) {
-		if (side == 0) {
-			// Consider queenside white
-			// Conditions for castling:
-			// Position of rook
-			// Emptiness of squares between rook and king
-			// Position of king
-			// King and rook haven't moved before (consired by the AND mask on
-			// the castling flag
-			// Squares between king and rook can't be attacked
-			// Cannot be in check
-			// Performed as cascading statements to improve performance
-			castling[side] &= 0b01111;
-			if (board[0] == CoreConstants.WHITE_ROOK) {
-				if (board[1] == CoreConstants.EMPTY) {
-					if (board[2] == CoreConstants.EMPTY) {
-						if (board[3] == CoreConstants.EMPTY) {
-							if (board[4] == CoreConstants.WHITE_KING) {
-								if (!((castling[side] & 0b00100) == 4)) {
-									if (!((castling[side] & 0b00010) == 2)) {
-										if (!isSquareAttacked(1, side)) {
-											if (!isSquareAttacked(2, side)) {
-												if (!isSquareAttacked(3, side)) {
-													if (!check(side)) {
-														castling[side] |= 0b10000;
-													}
-												}
-											}
-										}
-									}
-								}
-							}
-						}
-					}
-				}
-			}
-			// Consider kingside white
-			castling[side] &= 0b10111;
-			if (board[7] == CoreConstants.WHITE_ROOK) {
-				if (board[6] == CoreConstants.EMPTY) {
-					if (board[5] == CoreConstants.EMPTY) {
-						if (board[4] == CoreConstants.WHITE_KING) {
-							if (!((castling[side] & 0b00100) == 4)) {
-								if (!((castling[side] & 0b00001) == 1)) {
-									if (!check(side)) {
-										if (!isSquareAttacked(5, side)) {
-											if (!isSquareAttacked(6, side)) {
-												castling[side] |= 0b01000;
-											}
-										}
-									}
-								}
-							}
-						}
-					}
-				}
-			}
-		} else {
-			// Consider queenside black
-			castling[side] &= 0b01111;
-			if (board[56] == CoreConstants.BLACK_ROOK) {
-				if (board[57] == CoreConstants.EMPTY) {
-					if (board[58] == CoreConstants.EMPTY) {
-						if (board[59] == CoreConstants.EMPTY) {
-							if (board[60] == CoreConstants.BLACK_KING) {
-								if (!((castling[side] & 0b00100) == 4)) {
-									if (!((castling[side] & 0b00010) == 2)) {
-										if (!isSquareAttacked(57, side)) {
-											if (!isSquareAttacked(58, side)) {
-												if (!isSquareAttacked(59, side)) {
-													if (!check(side)) {
-														castling[side] |= 0b10000;
-													}
-												}
-											}
-										}
-									}
-								}
-							}
-						}
-					}
-				}
-			}
-			// Consider kingside black
-			castling[side] &= 0b10111;
-			if (board[63] == CoreConstants.BLACK_ROOK) {
-				if (board[62] == CoreConstants.EMPTY) {
-					if (board[61] == CoreConstants.EMPTY) {
-						if (board[60] == CoreConstants.BLACK_KING) {
-							if (!((castling[side] & 0b00100) == 4)) {
-								if (!((castling[side] & 0b00001) == 1)) {
-									if (!check(side)) {
-										if (!isSquareAttacked(61, side)) {
-											if (!isSquareAttacked(62, side)) {
-												castling[side] |= 0b01000;
-											}
-										}
-									}
-								}
-							}
-						}
-					}
-				}
-			}
+	public void undoNullMove() {
+		moveNumber--;
+		long ep = epHistory[moveNumber];
+		epTargetSquares[0] = ep & CoreConstants.ROW_6;
+		epTargetSquares[1] = ep & CoreConstants.ROW_3;
+		toMove = (toMove == 0) ? 1 : 0;
+		key = keyHistory[moveNumber];
+		if (VERIFY_KEYS) {
+			verifyKey();
 		}
 	}
 
@@ -482,7 +394,7 @@ public class Game {
 	// If there are no available moves and the player is in check, then it is
 	// checkmate $\label{code:checkmate}$
 	public boolean checkmate(int side) {
-		if (check(side) && MoveGen.generateMoves(this, true).size() == 0) {
+		if (check(side) && MoveGen.generateMoves(this, moveBuffer) == 0) {
 			return true;
 		} else {
 			return false;
@@ -492,7 +404,7 @@ public class Game {
 	public boolean checkmate(int side, int sideToMove) {
 		int origToMove = toMove;
 		toMove = sideToMove;
-		if (check(side) && MoveGen.generateMoves(this, true).size() == 0) {
+		if (check(side) && MoveGen.generateMoves(this, moveBuffer) == 0) {
 			toMove = origToMove;
 			return true;
 		} else {
@@ -506,7 +418,7 @@ public class Game {
 	public boolean stalemate(int sideToMove) {
 		int origToMove = toMove;
 		toMove = sideToMove;
-		if (!check(sideToMove) && MoveGen.generateMoves(this, true).size() == 0) {
+		if (!check(sideToMove) && MoveGen.generateMoves(this, moveBuffer) == 0) {
 			toMove = origToMove;
 			return true;
 		} else {
@@ -535,19 +447,11 @@ public class Game {
 
 	// Bishop and Rook attacks for purpose of determing status of check
 	long bishopAttacks(long occupiedBoard, int index, int side) {
-		long bishopBlockers = (occupiedBoard) & CoreConstants.occupancyMaskBishop[index];
-		int lookupIndex = (int) ((bishopBlockers
-				* CoreConstants.magicNumbersBishop[index]) >>> CoreConstants.magicShiftBishop[index]);
-		long moveSquares = CoreConstants.magicMovesBishop[index][lookupIndex] & ~bitboards[side];
-		return moveSquares;
+		return MoveGen.bishopAttacks(occupiedBoard, index) & ~bitboards[side];
 	}
 
 	long rookAttacks(long occupiedBoard, int index, int side) {
-		long rookBlockers = (occupiedBoard) & CoreConstants.occupancyMaskRook[index];
-		int lookupIndex = (int) ((rookBlockers
-				* CoreConstants.magicNumbersRook[index]) >>> CoreConstants.magicShiftRook[index]);
-		long moveSquares = CoreConstants.magicMovesRook[index][lookupIndex] & ~bitboards[side];
-		return moveSquares;
+		return MoveGen.rookAttacks(occupiedBoard, index) & ~bitboards[side];
 	}
 
 	// The board setup before starting a vanilla chess match
@@ -599,8 +503,11 @@ public class Game {
 		bitboards[CoreConstants.BLACK_QUEEN] = 0x0800_0000_0000_0000L;
 		bitboards[CoreConstants.BLACK_KING] = 0x1000000000000000L;
 		toMove = CoreConstants.WHITE;
-		castling[0] = 0L;
-		castling[1] = 0L;
+		castlingRights = CoreConstants.ALL_CASTLING_RIGHTS;
+		epTargetSquares[0] = 0L;
+		epTargetSquares[1] = 0L;
+		moveNumber = 0;
+		key = computeKey();
 	}
 
 	// Finds the index of the least significant set bit in a binary number
@@ -617,29 +524,44 @@ public class Game {
 	}
 
 	// Zobrist hashing is the hash function used in the evaluation system
-	// $\label{code:initZob}$
-	public static void initialiseZobrist() {
-		for (int x = 0; x <= 63; x++) {
-			for (int y = 0; y <= 11; y++) {
-				CoreConstants.zobristTable[x][y] = new Random().nextInt((int) Math.pow(2, 64) - 1);
-			}
-		}
+	// Returns the key of the position, which is kept up to date by move and
+	// undo rather than recomputed $\label{code:hash}$
+	public long getKey() {
+		return key;
 	}
 
-	// Assuming zobrist has been initialised
-	// Function uses XOR with a randomly initialised 2-D array to produce a hash
-	// for the board
-	// Used with a hash table in the evaluation system to store previously
-	// computed values $\label{code:hash}$
-	public int hash() {
-		int hash = 0;
+	// Calculates the key from scratch, XOR of the keys for each piece on its
+	// square, the side to move, the castling rights and the en passant file
+	public long computeKey() {
+		long result = 0;
 		for (int index = 0; index < 64; index++) {
 			if (board[index] != CoreConstants.EMPTY) {
-				int j = board[index] - 2;
-				hash = hash ^ CoreConstants.zobristTable[index][j];
+				result ^= CoreConstants.zobristPieces[board[index]][index];
 			}
 		}
-		return hash;
+		if (toMove == CoreConstants.BLACK) {
+			result ^= CoreConstants.zobristSide;
+		}
+		result ^= CoreConstants.zobristCastling[castlingRights];
+		return result ^ enPassantKey(epTargetSquares[0] | epTargetSquares[1]);
+	}
+
+	// Sets the key from scratch, needed after the position is changed
+	// directly rather than through move, undo or loadFen
+	public void recomputeKey() {
+		key = computeKey();
+	}
+
+	private static long enPassantKey(long epSquares) {
+		return (epSquares == 0) ? 0
+				: CoreConstants.zobristEnPassant[bitScanForward(epSquares) % 8];
+	}
+
+	private void verifyKey() {
+		if (key != computeKey()) {
+			throw new IllegalStateException("Incremental key does not match position after "
+					+ MoveEncoding.toString(moveHistory[Math.max(0, moveNumber - 1)]));
+		}
 	}
 
 	// Returns the number of set bits in a binary number
@@ -651,6 +573,11 @@ public class Game {
 		return (int) ((x * CoreConstants.h01) >> 56);
 	}
 
+	// Returns the move which led to this position, or NO_MOVE at the start
+	public int getLastMove() {
+		return (moveNumber > 0) ? moveHistory[moveNumber - 1] : MoveEncoding.NO_MOVE;
+	}
+
 	// Gets the number of moves played so far
 	public int getMoveNumber() {
 		return moveNumber;
@@ -680,7 +607,13 @@ public class Game {
 		return epTargetSquares;
 	}
 
-	public long[] getCastlingFlags() {
-		return castling;
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+
+	public void setCastlingRights(int castlingRights) {
+		key ^= CoreConstants.zobristCastling[this.castlingRights]
+				^ CoreConstants.zobristCastling[castlingRights];
+		this.castlingRights = castlingRights;
 	}
 }
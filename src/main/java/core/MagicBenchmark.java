@@ -0,0 +1,89 @@
+package core;
+
+import java.util.Random;
+
+public class MagicBenchmark {
+	// Compares sliding piece lookups in the packed magic table against the
+	// old layout of one fixed size row per square, where most of the
+	// [64][4096] rook and [64][1024] bishop arrays were never used
+	// java -cp target/classes core.MagicBenchmark [lookups]
+	private static final int POSITIONS = 1 << 16;
+
+	public static void main(String[] args) {
+		int lookups = (args.length > 0) ? Integer.parseInt(args[0]) : 50_000_000;
+		MoveGen.initialise();
+		// Build the old layout from the same magic numbers
+		long[][] sparseRook = new long[64][4096];
+		long[][] sparseBishop = new long[64][1024];
+		for (int index = 0; index < 64; index++) {
+			fillSparse(sparseRook[index], index, true);
+			fillSparse(sparseBishop[index], index, false);
+		}
+		// Random squares and occupancies, roughly as full as a middlegame
+		Random random = new Random(0);
+		int[] squares = new int[POSITIONS];
+		long[] occupancies = new long[POSITIONS];
+		for (int i = 0; i < POSITIONS; i++) {
+			squares[i] = random.nextInt(64);
+			occupancies[i] = random.nextLong() & random.nextLong();
+		}
+		Game board = new Game();
+		System.out.println("Sparse table: " + ((64 * 4096 + 64 * 1024) * 8 / 1024) + "KB");
+		System.out.println("Packed table: " + (CoreConstants.magicMoves.length * 8 / 1024) + "KB");
+		// Each is run twice, the first run warms up the JIT
+		for (int run = 0; run < 2; run++) {
+			long result = 0;
+			long startTime = System.nanoTime();
+			for (int i = 0; i < lookups; i++) {
+				int j = i & (POSITIONS - 1);
+				result ^= sparseRook[squares[j]][rookIndex(occupancies[j], squares[j])]
+						| sparseBishop[squares[j]][bishopIndex(occupancies[j], squares[j])];
+			}
+			report("Sparse lookups", startTime, lookups, result);
+			result = 0;
+			startTime = System.nanoTime();
+			for (int i = 0; i < lookups; i++) {
+				int j = i & (POSITIONS - 1);
+				result ^= MoveGen.rookAttacks(occupancies[j], squares[j])
+						| MoveGen.bishopAttacks(occupancies[j], squares[j]);
+			}
+			report("MoveGen lookups", startTime, lookups, result);
+			result = 0;
+			startTime = System.nanoTime();
+			for (int i = 0; i < lookups; i++) {
+				int j = i & (POSITIONS - 1);
+				result ^= board.rookAttacks(occupancies[j], squares[j], CoreConstants.WHITE)
+						| board.bishopAttacks(occupancies[j], squares[j], CoreConstants.WHITE);
+			}
+			report("Game lookups", startTime, lookups, result);
+		}
+	}
+
+	private static void fillSparse(long[] table, int index, boolean rook) {
+		long mask = rook ? CoreConstants.occupancyMaskRook[index]
+				: CoreConstants.occupancyMaskBishop[index];
+		long occupancy = 0;
+		do {
+			int magicIndex = rook ? rookIndex(occupancy, index) : bishopIndex(occupancy, index);
+			table[magicIndex] = MoveGen.slidingAttacks(index, occupancy, rook);
+			occupancy = (occupancy - mask) & mask;
+		} while (occupancy != 0);
+	}
+
+	private static int rookIndex(long occupied, int index) {
+		return (int) (((occupied & CoreConstants.occupancyMaskRook[index])
+				* CoreConstants.magicNumbersRook[index]) >>> CoreConstants.magicShiftRook[index]);
+	}
+
+	private static int bishopIndex(long occupied, int index) {
+		return (int) (((occupied & CoreConstants.occupancyMaskBishop[index])
+				* CoreConstants.magicNumbersBishop[index]) >>> CoreConstants.magicShiftBishop[index]);
+	}
+
+	// The result is printed so the lookups can't be optimised away
+	private static void report(String name, long startTime, int lookups, long result) {
+		long time = System.nanoTime() - startTime;
+		System.out.printf("%s: %.2fns per lookup (%x)%n", name, (double) time / lookups,
+				result & 0xF);
+	}
+}
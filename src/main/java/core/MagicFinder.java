@@ -0,0 +1,122 @@
+package core;
+
+import java.util.Random;
+
+public class MagicFinder {
+	// Searches for magic numbers by trial and error, a magic number maps
+	// every variation of blockers to an index in the lookup table, different
+	// variations may only share an index if their moves are the same
+	// A magic which needs fewer index bits (a larger shift) halves the size of
+	// the table for that square
+	// Based on https://www.chessprogramming.org/Looking_for_Magics
+
+	// Checks that a magic number indexes the moves for the square correctly
+	// with the given number of index bits
+	public static boolean isValid(int index, boolean rook, long magic, int bits) {
+		long mask = mask(index, rook);
+		long[] occupancies = new long[1 << Long.bitCount(mask)];
+		long[] attacks = new long[occupancies.length];
+		int variations = variations(index, rook, mask, occupancies, attacks);
+		return tryMagic(magic, bits, occupancies, attacks, variations, new long[1 << bits],
+				new int[1 << bits], 1);
+	}
+
+	// Returns a magic number using the given number of index bits, or 0 if
+	// none is found within the number of tries
+	public static long findMagic(int index, boolean rook, int bits, long tries, Random random) {
+		long mask = mask(index, rook);
+		long[] occupancies = new long[1 << Long.bitCount(mask)];
+		long[] attacks = new long[occupancies.length];
+		int variations = variations(index, rook, mask, occupancies, attacks);
+		long[] table = new long[1 << bits];
+		// Rather than clearing the table for each try, entries are marked with
+		// the try that used them
+		int[] used = new int[1 << bits];
+		for (int attempt = 1; attempt <= tries; attempt++) {
+			// Magics with few set bits work best
+			long magic = random.nextLong() & random.nextLong() & random.nextLong();
+			// Quickly reject magics which don't spread the mask into the top
+			// bits
+			if (Long.bitCount((mask * magic) & 0xFF00_0000_0000_0000L) < 6) {
+				continue;
+			}
+			if (tryMagic(magic, bits, occupancies, attacks, variations, table, used, attempt)) {
+				return magic;
+			}
+		}
+		return 0;
+	}
+
+	private static boolean tryMagic(long magic, int bits, long[] occupancies, long[] attacks,
+			int variations, long[] table, int[] used, int attempt) {
+		for (int i = 0; i < variations; i++) {
+			int magicIndex = (int) ((occupancies[i] * magic) >>> (64 - bits));
+			if (used[magicIndex] != attempt) {
+				used[magicIndex] = attempt;
+				table[magicIndex] = attacks[i];
+			} else if (table[magicIndex] != attacks[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long mask(int index, boolean rook) {
+		return rook ? CoreConstants.occupancyMaskRook[index]
+				: CoreConstants.occupancyMaskBishop[index];
+	}
+
+	// Fills in every variation of blockers and the moves for each, returns
+	// the number of variations
+	private static int variations(int index, boolean rook, long mask, long[] occupancies,
+			long[] attacks) {
+		int variations = 0;
+		long occupancy = 0;
+		do {
+			occupancies[variations] = occupancy;
+			attacks[variations++] = MoveGen.slidingAttacks(index, occupancy, rook);
+			occupancy = (occupancy - mask) & mask;
+		} while (occupancy != 0);
+		return variations;
+	}
+
+	// For each square, starting from the magic currently in use, keeps looking
+	// for a magic with one fewer index bit until none can be found, then
+	// prints the magic numbers and shifts in the form used in CoreConstants
+	// java -cp target/classes core.MagicFinder [tries per square] [seed]
+	public static void main(String[] args) {
+		long tries = (args.length > 0) ? Long.parseLong(args[0]) : 1_000_000;
+		Random random = new Random((args.length > 1) ? Long.parseLong(args[1]) : 0);
+		int oldSize = 0;
+		int newSize = 0;
+		for (boolean rook : new boolean[] { true, false }) {
+			long[] magics = rook ? CoreConstants.magicNumbersRook.clone()
+					: CoreConstants.magicNumbersBishop.clone();
+			long[] shifts = rook ? CoreConstants.magicShiftRook.clone()
+					: CoreConstants.magicShiftBishop.clone();
+			for (int index = 0; index < 64; index++) {
+				oldSize += 1 << (64 - shifts[index]);
+				long magic;
+				while ((magic = findMagic(index, rook, (int) (63 - shifts[index]), tries,
+						random)) != 0) {
+					magics[index] = magic;
+					shifts[index]++;
+				}
+				newSize += 1 << (64 - shifts[index]);
+			}
+			String name = rook ? "Rook" : "Bishop";
+			System.out.println("public static final long magicNumbers" + name + "[] = {");
+			for (int index = 0; index < 64; index++) {
+				System.out.print("0x" + Long.toHexString(magics[index]) + "L, ");
+			}
+			System.out.println("};");
+			System.out.println("public static final long magicShift" + name + "[] = {");
+			for (int index = 0; index < 64; index++) {
+				System.out.print(shifts[index] + ", ");
+			}
+			System.out.println("};");
+		}
+		System.out.println("Table entries: " + oldSize + " -> " + newSize + " ("
+				+ (newSize * 8 / 1024) + "KB)");
+	}
+}
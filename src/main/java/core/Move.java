@@ -1,63 +1,59 @@
 package core;
 
 public class Move {
-	private int oldPosition;
-	private int finalPosition;
-	private int pieceType;
-	private byte castling;
-	private boolean promotion;
-	private boolean enPassant;
+	private final int move;
 
-	// Move class used to store the crucial information about a particular move
-	public Move(int pieceType, int oldPosition, int finalPosition) {
-		this.oldPosition = oldPosition;
-		this.finalPosition = finalPosition;
-		this.pieceType = pieceType;
+	// Move class wraps a packed move (see MoveEncoding) so that the UI can
+	// work with objects whilst the engine works with ints
+	public Move(int move) {
+		this.move = move;
+	}
+
+	// Returns the packed representation used by the engine
+	public int getEncoding() {
+		return move;
 	}
 
 	// Returns the index of the square where the piece will move to
 	public int getFinalPos() {
-		return finalPosition;
+		return MoveEncoding.getTo(move);
 	}
 
 	// Returns the id number of the piece making the move
 	public int getPieceType() {
-		return pieceType;
+		return MoveEncoding.getPiece(move);
 	}
 
 	// Returns the index where the piece came from
 	public int getOldPos() {
-		return oldPosition;
+		return MoveEncoding.getFrom(move);
 	}
 
 	// Returns the castling flag of the move
 	// So that it can be judged whether or not the move is a castling move
 	// Also what type of castling i.e. white queenside, black kingside etc.
 	public byte getCastlingFlag() {
-		return castling;
+		return MoveEncoding.getCastling(move);
 	}
 
 	// Returns boolean to show whether or not move is a pawn promotion
 	public boolean isPromotion() {
-		return promotion;
-	}
-
-	// Returns boolean to show whether or not it is a pawn en passant attack
-	public boolean isEnPassant() {
-		return enPassant;
+		return MoveEncoding.isPromotion(move);
 	}
 
-	// Setters for castling, promotion and en passant
-	public void setCastling(byte castling) {
-		this.castling = castling;
+	// Returns the id of the piece the pawn is promoted to
+	public int getPromotionPiece() {
+		return MoveEncoding.getPromotion(move);
 	}
 
-	public void setPromotion(boolean promotion) {
-		this.promotion = promotion;
+	// Returns boolean to show whether or not it is a pawn en passant attack
+	public boolean isEnPassant() {
+		return MoveEncoding.isEnPassant(move);
 	}
 
-	public void setEnPassant(boolean enPassant) {
-		this.enPassant = enPassant;
+	@Override
+	public String toString() {
+		return MoveEncoding.toString(move);
 	}
 
-}
\ No newline at end of file
+}
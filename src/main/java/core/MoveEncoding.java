@@ -0,0 +1,86 @@
+package core;
+
+public class MoveEncoding {
+	// Moves are packed into a single int so that the move generator and the
+	// search never have to allocate an object per move
+	// Layout (least significant bit first):
+	// bits 0-5 index the piece moves from
+	// bits 6-11 index the piece moves to
+	// bits 12-15 id of the piece being moved
+	// bits 16-19 id of the piece being captured (EMPTY if not a capture)
+	// bits 20-23 id of the piece a pawn promotes to (EMPTY if not a promotion)
+	// bits 24-26 castling flag (noCastle, wQSide, wKSide, bQSide, bKSide)
+	// bit 27 en passant capture
+	// bit 28 pawn double push
+	// No real move has a zero encoding as the moving piece is never EMPTY
+	public static final int NO_MOVE = 0;
+
+	public static final int EN_PASSANT = 1 << 27;
+	public static final int DOUBLE_PUSH = 1 << 28;
+
+	private static final int SQUARE_MASK = 0x3F;
+	private static final int PIECE_MASK = 0xF;
+
+	public static int create(int pieceType, int from, int to, int captured, int promotion,
+			int castling, int flags) {
+		return from | (to << 6) | (pieceType << 12) | (captured << 16) | (promotion << 20)
+				| (castling << 24) | flags;
+	}
+
+	// Returns the index where the piece came from
+	public static int getFrom(int move) {
+		return move & SQUARE_MASK;
+	}
+
+	// Returns the index of the square where the piece will move to
+	public static int getTo(int move) {
+		return (move >>> 6) & SQUARE_MASK;
+	}
+
+	// Returns the id number of the piece making the move
+	public static int getPiece(int move) {
+		return (move >>> 12) & PIECE_MASK;
+	}
+
+	// Returns the id number of the piece being captured, for en passant this
+	// is the pawn 'behind' the destination square
+	public static int getCaptured(int move) {
+		return (move >>> 16) & PIECE_MASK;
+	}
+
+	// Returns the id number of the piece the pawn is promoted to
+	public static int getPromotion(int move) {
+		return (move >>> 20) & PIECE_MASK;
+	}
+
+	// Returns the type of castling i.e. white queenside, black kingside etc.
+	public static byte getCastling(int move) {
+		return (byte) ((move >>> 24) & 0x7);
+	}
+
+	public static boolean isCapture(int move) {
+		return getCaptured(move) != CoreConstants.EMPTY;
+	}
+
+	public static boolean isPromotion(int move) {
+		return getPromotion(move) != CoreConstants.EMPTY;
+	}
+
+	public static boolean isEnPassant(int move) {
+		return (move & EN_PASSANT) != 0;
+	}
+
+	public static boolean isDoublePush(int move) {
+		return (move & DOUBLE_PUSH) != 0;
+	}
+
+	// Long algebraic notation e.g. e2e4 or e7e8q, mainly used for debugging
+	public static String toString(int move) {
+		String result = CoreConstants.indexToAlgebraic[getFrom(move)]
+				+ CoreConstants.indexToAlgebraic[getTo(move)];
+		if (isPromotion(move)) {
+			result += CoreConstants.pieceToLetterFen[getPromotion(move) | 1];
+		}
+		return result;
+	}
+}
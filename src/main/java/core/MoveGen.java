@@ -1,454 +1,643 @@
 package core;
 
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.LinkedList;
 
 public class MoveGen {
 
-	public static LinkedList<Move> generateMoves(Game board, boolean legal) {
-		LinkedList<Move> moves = new LinkedList<>();
-		// Generate moves only for the next side to move
+	// Convenience version which allocates an array of the exact size, the
+	// search uses the buffered version below
+	public static int[] generateMoves(Game board) {
+		int[] moves = new int[CoreConstants.MAX_MOVES_PER_POSITION];
+		return Arrays.copyOf(moves, generateMoves(board, moves));
+	}
+
+	// Wraps each generated move in a Move object, used by the UI
+	public static LinkedList<Move> generateMoveList(Game board) {
+		LinkedList<Move> moveList = new LinkedList<>();
+		for (int move : generateMoves(board)) {
+			moveList.add(new Move(move));
+		}
+		return moveList;
+	}
+
+	// Types of move which can be generated
+	private static final int ALL = 0;
+	private static final int CAPTURES = 1;
+	private static final int QUIETS = 2;
+	// Square the king moves to for each castling flag
+	private static final long[] CASTLING_KING_TARGETS = { 0, CoreConstants.wqueenside,
+			CoreConstants.wkingside, CoreConstants.bqueenside, CoreConstants.bkingside };
+
+	// Generates the strictly legal moves for the side to move as packed ints
+	// (see MoveEncoding) into a buffer owned by the caller, so no allocation
+	// takes place. The buffer must hold MAX_MOVES_PER_POSITION moves
+	// Returns the number of moves written to the buffer
+	public static int generateMoves(Game board, int[] moves) {
+		return generate(board, moves, ALL);
+	}
+
+	// Only captures (including en passant) and promotions, these are the
+	// moves which change the material on the board
+	public static int generateCaptures(Game board, int[] moves) {
+		return generate(board, moves, CAPTURES);
+	}
+
+	// Every move not generated by generateCaptures, including castling
+	public static int generateQuiets(Game board, int[] moves) {
+		return generate(board, moves, QUIETS);
+	}
+
+	// Moves which get the side to move out of check, only king moves to safe
+	// squares and, with a single checker, captures of it and blocks of the
+	// line between it and the king. Only the king can move out of a double
+	// check. A pinned piece can never capture or block a check so is left out
+	public static int generateEvasions(Game board, int[] moves) {
 		int side = board.toMove;
-		// Start by adding forward pawn moves, known as pushes
-		addPawnPushes(board, moves, side);
-		long pawnBoard = board.getBitBoards()[side + 2];
-		while (pawnBoard != 0) {
-			// Add moves for each pawn of one of the players
-			addPawnAttacks(board, moves, Game.bitScanForward(pawnBoard), side);
-			pawnBoard &= pawnBoard - 1;
+		long[] bitboards = board.getBitBoards();
+		long occupied = bitboards[CoreConstants.WHITE] | bitboards[CoreConstants.BLACK];
+		int kingIndex = Game.bitScanForward(bitboards[CoreConstants.WHITE_KING + side]);
+		long checkers = (kingIndex == -1) ? 0
+				: attackersTo(board, kingIndex, occupied, side ^ 1);
+		// Not in check, so every move is an evasion
+		if (checkers == 0) {
+			return generate(board, moves, ALL);
+		}
+		int count = addKingMoves(board, moves, 0, kingIndex, side, occupied, checkers,
+				~bitboards[side], false);
+		if (Long.bitCount(checkers) > 1) {
+			return count;
 		}
-		long knightBoard = board.getBitBoards()[side + 4];
+		long checkMask = checkers
+				| CoreConstants.BETWEEN[kingIndex][Game.bitScanForward(checkers)];
+		long pinned = pinnedPieces(board, kingIndex, side);
+		count = addPawnMoves(board, moves, count, side, kingIndex, checkMask, pinned, ALL);
+		long knightBoard = bitboards[CoreConstants.WHITE_KNIGHT + side] & ~pinned;
 		while (knightBoard != 0) {
-			// Add moves for each knight
-			addKnightMoves(board, moves, Game.bitScanForward(knightBoard), side);
+			int index = Game.bitScanForward(knightBoard);
+			count = addMoves(board, CoreConstants.WHITE_KNIGHT + side, index,
+					CoreConstants.KNIGHT_TABLE[index] & checkMask, moves, count,
+					CoreConstants.noCastle);
 			knightBoard &= knightBoard - 1;
 		}
-		long rookBoard = board.getBitBoards()[side + 6];
+		long queens = bitboards[CoreConstants.WHITE_QUEEN + side];
+		long rookBoard = (bitboards[CoreConstants.WHITE_ROOK + side] | queens) & ~pinned;
 		while (rookBoard != 0) {
-			// Add moves for each rook
-			addRookMoves(board, moves, Game.bitScanForward(rookBoard), side);
+			int index = Game.bitScanForward(rookBoard);
+			count = addMoves(board, board.getBoardArray()[index], index,
+					rookAttacks(occupied, index) & checkMask, moves, count, CoreConstants.noCastle);
 			rookBoard &= rookBoard - 1;
 		}
-		long bishopBoard = board.getBitBoards()[side + 8];
+		long bishopBoard = (bitboards[CoreConstants.WHITE_BISHOP + side] | queens) & ~pinned;
 		while (bishopBoard != 0) {
-			// Add moves for each bishop
-			addBishopMoves(board, moves, Game.bitScanForward(bishopBoard), side);
+			int index = Game.bitScanForward(bishopBoard);
+			count = addMoves(board, board.getBoardArray()[index], index,
+					bishopAttacks(occupied, index) & checkMask, moves, count,
+					CoreConstants.noCastle);
 			bishopBoard &= bishopBoard - 1;
 		}
-		long queenBoard = board.getBitBoards()[side + 10];
-		while (queenBoard != 0) {
-			// Add moves for each queen
-			addQueenMoves(board, moves, Game.bitScanForward(queenBoard), side);
-			queenBoard &= queenBoard - 1;
-		}
-		long kingBoard = board.getBitBoards()[side + 12];
-		while (kingBoard != 0) {
-			// Add moves for the king
-			addKingMoves(board, moves, Game.bitScanForward(kingBoard), side);
-			kingBoard &= kingBoard - 1;
-		}
-
-		Iterator<Move> iter = moves.iterator();
-		// No move can go directly to the position of a king, so remove these
-		// moves from the LinkedList
-		// NOTE: iterator is used to avoid concurrent modification exception
-		// i.e.
-		// you can't loop through an LinkedList and remove elements at the same
-		// time
-		while (iter.hasNext()) {
-			Move move = iter.next();
-			if (board.getBoardArray()[move.getFinalPos()] == CoreConstants.WHITE_KING
-					|| board.getBoardArray()[move.getFinalPos()] == CoreConstants.BLACK_KING) {
-				iter.remove();
-			}
-			board.move(move);
-			boolean noWKings = Game.bitScanForward(board.getBitBoards()[CoreConstants.WHITE_KING]) == -1;
-			boolean noBKings = Game.bitScanForward(board.getBitBoards()[CoreConstants.BLACK_KING]) == -1;
-			if(noWKings | noBKings){
-				System.out.println("KING OFF");
-				iter.remove();
-			}
-			board.undo();
-		}
-		// If strictly legal moves are being generated, remove all the moves
-		// which result in the player's own king being in check
-		if (legal) {
-			moves = removeCheckMoves(board, moves, side);
-		}
-		return moves;
+		return count;
 	}
 
-	// Method to check if a king is inside another king's set of moves
-	// I.e. if one king is inside the 3x3 square around the other king
-	private static boolean kingInKingSquare(Game board, int side) {
-		int myKingIndex = Game.bitScanForward(board.getBitBoards()[12 + side]);
-		int enemyKingIndex = Game
-				.bitScanForward(board.getBitBoards()[12 + ((side == 0) ? 1 : 0)]);
-		if (((1L << myKingIndex) & CoreConstants.KING_TABLE[enemyKingIndex]) != 0) {
-			return true;
+	// Rather than making each move and testing for check, the pieces giving
+	// check and the pieces pinned to the king are found up front, then every
+	// piece is restricted to the squares which keep its king safe
+	// Based on
+	// https://www.chessprogramming.org/Checks_and_Pinned_Pieces_(Bitboards)
+	private static int generate(Game board, int[] moves, int type) {
+		int count = 0;
+		// Generate moves only for the next side to move
+		int side = board.toMove;
+		int enemy = side ^ 1;
+		long[] bitboards = board.getBitBoards();
+		long occupied = bitboards[CoreConstants.WHITE] | bitboards[CoreConstants.BLACK];
+		// The squares pieces are allowed to move to for this type of move
+		long targets = (type == CAPTURES) ? bitboards[enemy]
+				: (type == QUIETS) ? ~occupied : ~bitboards[side];
+		int kingIndex = Game.bitScanForward(bitboards[CoreConstants.WHITE_KING + side]);
+		long checkers = 0;
+		long pinned = 0;
+		if (kingIndex != -1) {
+			checkers = attackersTo(board, kingIndex, occupied, enemy);
+			pinned = pinnedPieces(board, kingIndex, side);
+			count = addKingMoves(board, moves, count, kingIndex, side, occupied, checkers, targets,
+					type != CAPTURES);
+		}
+		// If two pieces give check, only the king can move
+		if (Long.bitCount(checkers) > 1) {
+			return count;
+		}
+		// Check mask is the set of squares other pieces must move to, when in
+		// check these are the squares capturing the checker or blocking it
+		long checkMask = (checkers == 0) ? ~0L
+				: checkers | CoreConstants.BETWEEN[kingIndex][Game.bitScanForward(checkers)];
+		count = addPawnMoves(board, moves, count, side, kingIndex, checkMask, pinned, type);
+		targets &= checkMask;
+		// A pinned knight can never move without exposing its king
+		long knightBoard = bitboards[side + 4] & ~pinned;
+		while (knightBoard != 0) {
+			// Add moves for each knight
+			int index = Game.bitScanForward(knightBoard);
+			long knightMoves = CoreConstants.KNIGHT_TABLE[index] & targets;
+			count = addMoves(board, side + CoreConstants.WHITE_KNIGHT, index, knightMoves, moves,
+					count, CoreConstants.noCastle);
+			knightBoard &= knightBoard - 1;
+		}
+		// Rooks, bishops and queens look up their moves using magic bitboards
+		// A pinned slider can only move along the line between its king and
+		// the pinning piece
+		long rookBoard = bitboards[side + 6] | bitboards[side + 10];
+		while (rookBoard != 0) {
+			// Add rook moves for each rook and queen
+			int index = Game.bitScanForward(rookBoard);
+			long rookMoves = rookAttacks(occupied, index) & targets
+					& pinMask(index, kingIndex, pinned);
+			count = addMoves(board, board.getBoardArray()[index], index, rookMoves, moves, count,
+					CoreConstants.noCastle);
+			rookBoard &= rookBoard - 1;
+		}
+		long bishopBoard = bitboards[side + 8] | bitboards[side + 10];
+		while (bishopBoard != 0) {
+			// Add bishop moves for each bishop and queen
+			int index = Game.bitScanForward(bishopBoard);
+			long bishopMoves = bishopAttacks(occupied, index) & targets
+					& pinMask(index, kingIndex, pinned);
+			count = addMoves(board, board.getBoardArray()[index], index, bishopMoves, moves, count,
+					CoreConstants.noCastle);
+			bishopBoard &= bishopBoard - 1;
 		}
-		return false;
+		return count;
 	}
 
-	private static LinkedList<Move> removeCheckMoves(Game board, LinkedList<Move> moveList,
-                                                     int side) {
-
-		// Iterator has to be used to avoid concurrent modification exception
-		// i.e. so that we can remove from the LinkedList as we loop through it
-		//
-		Iterator<Move> iter = moveList.iterator();
-		while (iter.hasNext()) {
-			Move move = iter.next();
-			int pieceSide = move.getPieceType() % 2;
-			if (pieceSide == side) {
-				board.move(move);
-				// If it results in check for the player's king
-				// Or the king moves in the square surrounding another king
-				// The move is invalid and hence removed
-				// $\label{code:listRemove}$
-				boolean check = board.check(side);
-				boolean kingInKingSquare = kingInKingSquare(board, side);
-				board.undo();
-				if (check | kingInKingSquare) {
-					iter.remove();
+	// Checks whether a move, e.g. one taken from the transposition table or a
+	// killer move from another position, is legal in the current position
+	// without generating any moves. Only moves encoded exactly as the
+	// generator would encode them are accepted
+	public static boolean isLegal(Game board, int move) {
+		if (move == MoveEncoding.NO_MOVE) {
+			return false;
+		}
+		byte[] boardArray = board.getBoardArray();
+		long[] bitboards = board.getBitBoards();
+		int side = board.toMove;
+		int from = MoveEncoding.getFrom(move);
+		int to = MoveEncoding.getTo(move);
+		int piece = MoveEncoding.getPiece(move);
+		int captured = MoveEncoding.getCaptured(move);
+		long toBit = 1L << to;
+		long occupied = bitboards[CoreConstants.WHITE] | bitboards[CoreConstants.BLACK];
+		// The piece must be on its square and belong to the side to move
+		if (boardArray[from] != piece || (piece & 1) != side) {
+			return false;
+		}
+		// Castling is only encoded for the king moving to its castling square
+		byte castle = MoveEncoding.getCastling(move);
+		if (castle != CoreConstants.noCastle) {
+			return castle <= CoreConstants.bKSide && piece == CoreConstants.WHITE_KING + side
+					&& (castle <= CoreConstants.wKSide) == (side == CoreConstants.WHITE)
+					&& from == ((side == CoreConstants.WHITE) ? 4 : 60)
+					&& CASTLING_KING_TARGETS[castle] == toBit && captured == CoreConstants.EMPTY
+					&& MoveEncoding.getPromotion(move) == CoreConstants.EMPTY
+					&& (move & (MoveEncoding.EN_PASSANT | MoveEncoding.DOUBLE_PUSH)) == 0
+					&& !board.check(side) && canCastle(board, castle, occupied);
+		}
+		boolean pawn = piece == CoreConstants.WHITE_PAWN + side;
+		boolean enPassant = MoveEncoding.isEnPassant(move);
+		// The captured piece must match the board, apart from en passant where
+		// the target square is empty
+		if (enPassant) {
+			if (!pawn || captured != CoreConstants.WHITE_PAWN + (side ^ 1)
+					|| (board.getEpTargetSquares()[side] & toBit) == 0
+					|| (CoreConstants.PAWN_ATTACKS_TABLE[side][from] & toBit) == 0
+					|| MoveEncoding.isPromotion(move) || MoveEncoding.isDoublePush(move)) {
+				return false;
+			}
+		} else if (boardArray[to] != captured || (captured != CoreConstants.EMPTY
+				&& ((captured & 1) == side || captured >= CoreConstants.WHITE_KING))) {
+			return false;
+		}
+		if (pawn) {
+			// Promotions are exactly the moves onto the final row
+			long promotionsMask = (side == 0) ? CoreConstants.ROW_8 : CoreConstants.ROW_1;
+			int promotion = MoveEncoding.getPromotion(move);
+			if (((toBit & promotionsMask) != 0) != (promotion != CoreConstants.EMPTY)
+					|| (promotion != CoreConstants.EMPTY && ((promotion & 1) != side
+							|| promotion < CoreConstants.WHITE_KNIGHT
+							|| promotion > CoreConstants.BLACK_QUEEN))) {
+				return false;
+			}
+			int forward = (side == 0) ? 8 : -8;
+			if (!enPassant) {
+				if (captured != CoreConstants.EMPTY) {
+					if ((CoreConstants.PAWN_ATTACKS_TABLE[side][from] & toBit) == 0
+							|| MoveEncoding.isDoublePush(move)) {
+						return false;
+					}
+				} else if (MoveEncoding.isDoublePush(move)) {
+					long startMask = (side == 0) ? CoreConstants.ROW_2 : CoreConstants.ROW_7;
+					if (to != from + forward + forward || ((1L << from) & startMask) == 0
+							|| (occupied & (1L << (from + forward))) != 0) {
+						return false;
+					}
+				} else if (to != from + forward) {
+					return false;
 				}
-
+			}
+		} else {
+			// Pieces other than pawns have no flags
+			if ((move & (0xF << 20 | MoveEncoding.DOUBLE_PUSH)) != 0) {
+				return false;
+			}
+			long attacks;
+			if (piece == CoreConstants.WHITE_KNIGHT + side) {
+				attacks = CoreConstants.KNIGHT_TABLE[from];
+			} else if (piece == CoreConstants.WHITE_KING + side) {
+				// The king must not move onto an attacked square
+				return (CoreConstants.KING_TABLE[from] & toBit) != 0 && attackersTo(board, to,
+						occupied & ~(1L << from), side ^ 1) == 0;
+			} else if (piece == CoreConstants.WHITE_ROOK + side) {
+				attacks = rookAttacks(occupied, from);
+			} else if (piece == CoreConstants.WHITE_BISHOP + side) {
+				attacks = bishopAttacks(occupied, from);
+			} else {
+				attacks = rookAttacks(occupied, from) | bishopAttacks(occupied, from);
+			}
+			if ((attacks & toBit) == 0) {
+				return false;
 			}
 		}
-		return moveList;
+		// The move is possible, finally make sure it does not leave the king in
+		// check
+		board.move(move);
+		boolean check = board.check(side);
+		board.undo();
+		return !check;
 	}
 
-/*	private static LinkedList<Move> removeKingInKingSquareMoves(Game board,
-			LinkedList<Move> moveList, int side) {
-		// Iterator has to be used to avoid concurrent modification exception
-		// i.e. so that we can remove from the LinkedList as we loop through it
-		//
-		Iterator<Move> iter = moveList.iterator();
-		while (iter.hasNext()) {
-			Move move = iter.next();
-			int pieceSide = move.getPieceType() % 2;
-			if (pieceSide == side) {
-				board.move(move);
-				// If it results in check for the player's king
-				// Or the king moves in the square surrounding another king
-				// The move is invalid and hence removed
-				// $\label{code:listRemove}$
-				boolean kingInKingSquare = kingInKingSquare(board, side);
-				board.undo();
-				if (kingInKingSquare) {
-					iter.remove();
-				}
+	// Returns the pieces of the given side which attack a square, used to
+	// find checking pieces and to test king moves
+	public static long attackersTo(Game board, int index, long occupied, int side) {
+		long[] bitboards = board.getBitBoards();
+		long rookQueen = bitboards[CoreConstants.WHITE_ROOK + side]
+				| bitboards[CoreConstants.WHITE_QUEEN + side];
+		long bishopQueen = bitboards[CoreConstants.WHITE_BISHOP + side]
+				| bitboards[CoreConstants.WHITE_QUEEN + side];
+		// A pawn of side attacks the square if a pawn of the other side on
+		// the square would attack the pawn
+		return (CoreConstants.PAWN_ATTACKS_TABLE[side ^ 1][index]
+				& bitboards[CoreConstants.WHITE_PAWN + side])
+				| (CoreConstants.KNIGHT_TABLE[index] & bitboards[CoreConstants.WHITE_KNIGHT + side])
+				| (CoreConstants.KING_TABLE[index] & bitboards[CoreConstants.WHITE_KING + side])
+				| (bishopAttacks(occupied, index) & bishopQueen)
+				| (rookAttacks(occupied, index) & rookQueen);
+	}
 
+	// A piece is pinned if it is the only piece between its king and an enemy
+	// slider on the same line
+	// The potential pinners are found by looking from the king through the
+	// side's own pieces
+	private static long pinnedPieces(Game board, int kingIndex, int side) {
+		long[] bitboards = board.getBitBoards();
+		int enemy = side ^ 1;
+		long occupied = bitboards[CoreConstants.WHITE] | bitboards[CoreConstants.BLACK];
+		long enemyQueens = bitboards[CoreConstants.WHITE_QUEEN + enemy];
+		long snipers = (rookAttacks(bitboards[enemy], kingIndex)
+				& (bitboards[CoreConstants.WHITE_ROOK + enemy] | enemyQueens))
+				| (bishopAttacks(bitboards[enemy], kingIndex)
+						& (bitboards[CoreConstants.WHITE_BISHOP + enemy] | enemyQueens));
+		long pinned = 0;
+		while (snipers != 0) {
+			int sniper = Game.bitScanForward(snipers);
+			long blockers = CoreConstants.BETWEEN[kingIndex][sniper] & occupied;
+			if (Long.bitCount(blockers) == 1) {
+				pinned |= blockers & bitboards[side];
 			}
+			snipers &= snipers - 1;
 		}
-		return moveList;
-	}*/
-
-	private static void addMoves(int pieceType, int index, long moves, LinkedList<Move> moveList,
-			boolean enPassant, boolean promotion, byte castling) {
-		while (moves != 0) {
-			// Each set bit in the long moves represents a positon where the
-			// piece could move
-			// Each move is added to an LinkedList containing all the moves
-			// $\label{code:listAdd}$
-			Move move = new Move(pieceType, index, Game.bitScanForward(moves));
-			move.setCastling(castling);
-			move.setPromotion(promotion);
-			move.setEnPassant(enPassant);
-			moveList.add(move);
-			moves &= moves - 1;
-		}
+		return pinned;
 	}
 
-	// Used by the pawn move generation since black and white move in different
-	// directions an offset is used
-	private static void addMovesWithOffset(int pieceType, long moves, LinkedList<Move> moveList,
-			boolean enPassant, boolean promotion, byte castling, int offset) {
-		while (moves != 0) {
-			int to = Game.bitScanForward(moves);
-			int from = (to - offset) % 64;
-			if (from < 0) {
-				from = 64 + from;
-			}
-			Move move = new Move(pieceType, from, to);
-			move.setCastling(castling);
-			move.setPromotion(promotion);
-			move.setEnPassant(enPassant);
-			moveList.add(move);
-			moves &= moves - 1;
-		}
+	// Squares a piece may move to without breaking a pin
+	private static long pinMask(int index, int kingIndex, long pinned) {
+		return ((pinned & (1L << index)) == 0) ? ~0L : CoreConstants.LINE[kingIndex][index];
 	}
 
-	private static void addRookMoves(Game board, LinkedList<Move> moveList, int index,
-                                     int side) {
-		int pieceType = (side == 0) ? CoreConstants.WHITE_ROOK : CoreConstants.BLACK_ROOK;
-		// Blockers is all the positions which could stop the rook from moving
-		// further
-		long rookBlockers = (board.getBitBoards()[CoreConstants.WHITE]
-				| board.getBitBoards()[CoreConstants.BLACK])
-				& CoreConstants.occupancyMaskRook[index];
-		// Using the blockers array and pre-computed values we can lookup the
-		// moves of the rook from an array generated when the program is
-		// executed
+	// Lookup the moves of a rook using magic bitboards
+	// Blockers is all the positions which could stop the rook from moving
+	// further, using the blockers and pre-computed values we can lookup the
+	// moves of the rook from an array generated when the program is executed
+	public static long rookAttacks(long occupied, int index) {
+		long rookBlockers = occupied & CoreConstants.occupancyMaskRook[index];
 		int lookupIndex = (int) ((rookBlockers
 				* CoreConstants.magicNumbersRook[index]) >>> CoreConstants.magicShiftRook[index]);
-		// Rook can't move to a square where another piece from its same colour
-		// is, so remove these instances by performing AND on the NOT of where
-		// all those pieces are
-		long moveSquares = CoreConstants.magicMovesRook[index][lookupIndex]
-				& ~board.getBitBoards()[side];
-		addMoves(pieceType, index, moveSquares, moveList, false, false, CoreConstants.noCastle);
+		return CoreConstants.magicMoves[CoreConstants.magicOffsetRook[index] + lookupIndex];
 	}
 
 	// Equivalent to the algorithm above
-	private static void addBishopMoves(Game board, LinkedList<Move> moveList, int index,
-                                       int side) {
-		int pieceType = (side == 0) ? CoreConstants.WHITE_BISHOP : CoreConstants.BLACK_BISHOP;
-		long bishopBlockers = (board.getBitBoards()[CoreConstants.WHITE]
-				| board.getBitBoards()[CoreConstants.BLACK])
-				& CoreConstants.occupancyMaskBishop[index];
+	public static long bishopAttacks(long occupied, int index) {
+		long bishopBlockers = occupied & CoreConstants.occupancyMaskBishop[index];
 		int lookupIndex = (int) ((bishopBlockers
 				* CoreConstants.magicNumbersBishop[index]) >>> CoreConstants.magicShiftBishop[index]);
-		long moveSquares = CoreConstants.magicMovesBishop[index][lookupIndex]
-				& ~board.getBitBoards()[side];
-		addMoves(pieceType, index, moveSquares, moveList, false, false, CoreConstants.noCastle);
+		return CoreConstants.magicMoves[CoreConstants.magicOffsetBishop[index] + lookupIndex];
 	}
 
-	// The moves of the queen are just the moves of a rook as well as the moves
-	// of a bishop in that position
-	// Hence we calculate both of those and then OR the result
-	private static void addQueenMoves(Game board, LinkedList<Move> moveList, int index,
-                                      int side) {
-		int pieceType = (side == 0) ? CoreConstants.WHITE_QUEEN : CoreConstants.BLACK_QUEEN;
-		long rookBlockers = (board.getBitBoards()[CoreConstants.WHITE]
-				| board.getBitBoards()[CoreConstants.BLACK])
-				& CoreConstants.occupancyMaskRook[index];
-		int lookupIndexRook = (int) ((rookBlockers
-				* CoreConstants.magicNumbersRook[index]) >>> CoreConstants.magicShiftRook[index]);
-		long moveSquaresRook = CoreConstants.magicMovesRook[index][lookupIndexRook]
-				& ~board.getBitBoards()[side];
-
-		long bishopBlockers = (board.getBitBoards()[CoreConstants.WHITE]
-				| board.getBitBoards()[CoreConstants.BLACK])
-				& CoreConstants.occupancyMaskBishop[index];
-		int lookupIndexBishop = (int) ((bishopBlockers
-				* CoreConstants.magicNumbersBishop[index]) >>> CoreConstants.magicShiftBishop[index]);
-		long moveSquaresBishop = CoreConstants.magicMovesBishop[index][lookupIndexBishop]
-				& ~board.getBitBoards()[side];
-
-		long queenMoves = moveSquaresRook | moveSquaresBishop;
-		addMoves(pieceType, index, queenMoves, moveList, false, false, CoreConstants.noCastle);
+	private static int addMoves(Game board, int pieceType, int index, long targets, int[] moves,
+			int count, byte castling) {
+		while (targets != 0) {
+			// Each set bit in targets represents a positon where the piece
+			// could move
+			// Each move is packed and added to the array of moves
+			// $\label{code:listAdd}$
+			int to = Game.bitScanForward(targets);
+			moves[count++] = MoveEncoding.create(pieceType, index, to, board.getBoardArray()[to],
+					CoreConstants.EMPTY, castling, 0);
+			targets &= targets - 1;
+		}
+		return count;
 	}
 
-	// Simply lookup the moves of the knight since it is unaffected by the
-	// pieces around it so can be pre-computed easily
-	// Then remove the moves that would 'capture' a friendly piece
-	private static void addKnightMoves(Game board, LinkedList<Move> moveList, int index,
-                                       int side) {
-		int pieceType = (side == 0) ? CoreConstants.WHITE_KNIGHT : CoreConstants.BLACK_KNIGHT;
-		long knightMoves = CoreConstants.KNIGHT_TABLE[index] & ~board.getBitBoards()[side];
-		addMoves(pieceType, index, knightMoves, moveList, false, false, CoreConstants.noCastle);
+	// Pawns reaching the final row may promote to a queen, rook, bishop or
+	// knight, so one move is added for each option
+	private static int addPromotions(Game board, int pieceType, int from, int to, int[] moves,
+			int count) {
+		int side = pieceType & 1;
+		byte captured = board.getBoardArray()[to];
+		moves[count++] = MoveEncoding.create(pieceType, from, to, captured,
+				CoreConstants.WHITE_QUEEN + side, CoreConstants.noCastle, 0);
+		moves[count++] = MoveEncoding.create(pieceType, from, to, captured,
+				CoreConstants.WHITE_ROOK + side, CoreConstants.noCastle, 0);
+		moves[count++] = MoveEncoding.create(pieceType, from, to, captured,
+				CoreConstants.WHITE_BISHOP + side, CoreConstants.noCastle, 0);
+		moves[count++] = MoveEncoding.create(pieceType, from, to, captured,
+				CoreConstants.WHITE_KNIGHT + side, CoreConstants.noCastle, 0);
+		return count;
 	}
 
-	// Similary to the knight, king moves can just be looked up
-	// However castling moves have to be calculateds
-	private static void addKingMoves(Game board, LinkedList<Move> moveList, int index,
-                                     int side) {
-		long moves = CoreConstants.KING_TABLE[index] & ~board.getBitBoards()[side];
+	// King moves can just be looked up, a move is only legal if the square
+	// is not attacked once the king has left its current square (so that it
+	// cannot step back along the line of a checking slider)
+	// However castling moves have to be calculated
+	private static int addKingMoves(Game board, int[] moves, int count, int index, int side,
+			long occupied, long checkers, long targets, boolean castling) {
 		int pieceType = (side == 0) ? CoreConstants.WHITE_KING : CoreConstants.BLACK_KING;
-		addMoves(pieceType, index, moves, moveList, false, false, CoreConstants.noCastle);
-		// Check for castling moves
-		// Check the castling flags (descirbed in the Game class)
-		// If some have set bits in the correct position castling is legal, if
-		// so add moves accordingly
-		if (side == CoreConstants.WHITE) {
-			if ((board.getCastlingFlags()[side] & 0b10000) == 16) {
-				addMoves(pieceType, index, CoreConstants.wqueenside, moveList, false, false,
-						CoreConstants.wQSide);
+		long kingMoves = CoreConstants.KING_TABLE[index] & targets;
+		long occupiedWithoutKing = occupied & ~(1L << index);
+		while (kingMoves != 0) {
+			int to = Game.bitScanForward(kingMoves);
+			if (attackersTo(board, to, occupiedWithoutKing, side ^ 1) == 0) {
+				moves[count++] = MoveEncoding.create(pieceType, index, to,
+						board.getBoardArray()[to], CoreConstants.EMPTY, CoreConstants.noCastle, 0);
 			}
-			if ((board.getCastlingFlags()[side] & 0b01000) == 8) {
-				addMoves(pieceType, index, CoreConstants.wkingside, moveList, false, false,
-						CoreConstants.wKSide);
-			}
-		} else {
-			if ((board.getCastlingFlags()[side] & 0b10000) == 16) {
-				addMoves(pieceType, index, CoreConstants.bqueenside, moveList, false, false,
-						CoreConstants.bQSide);
+			kingMoves &= kingMoves - 1;
+		}
+		if (checkers != 0 || !castling) {
+			return count;
+		}
+		// Check for castling moves
+		// The castling rights only record that the king and rook haven't
+		// moved, the squares between them are checked here, which is the only
+		// time castling is actually considered
+		byte first = (side == CoreConstants.WHITE) ? CoreConstants.wQSide : CoreConstants.bQSide;
+		for (byte castle = first; castle <= first + 1; castle++) {
+			if (canCastle(board, castle, occupied)) {
+				count = addMoves(board, pieceType, index, CASTLING_KING_TARGETS[castle], moves,
+						count, castle);
 			}
-			if ((board.getCastlingFlags()[side] & 0b01000) == 8) {
-				addMoves(pieceType, index, CoreConstants.bkingside, moveList, false, false,
-						CoreConstants.bKSide);
+		}
+		return count;
+	}
+
+	// Conditions for castling (apart from not being in check):
+	// The right hasn't been lost by moving the king or rook
+	// The king and rook are on their original squares
+	// Emptiness of squares between rook and king
+	// Squares the king moves through can't be attacked
+	// Performed in order of increasing cost
+	private static boolean canCastle(Game board, int castle, long occupied) {
+		int side = (castle <= CoreConstants.wKSide) ? CoreConstants.WHITE : CoreConstants.BLACK;
+		byte[] boardArray = board.getBoardArray();
+		if ((board.getCastlingRights() & CoreConstants.castlingRight[castle]) == 0
+				|| boardArray[(side == CoreConstants.WHITE) ? 4 : 60] != CoreConstants.WHITE_KING + side
+				|| boardArray[CoreConstants.castlingRookFrom[castle]] != CoreConstants.WHITE_ROOK
+						+ side
+				|| (occupied & CoreConstants.castlingEmptySquares[castle]) != 0) {
+			return false;
+		}
+		long path = CoreConstants.castlingKingPath[castle];
+		while (path != 0) {
+			if (attackersTo(board, Game.bitScanForward(path), occupied, side ^ 1) != 0) {
+				return false;
 			}
+			path &= path - 1;
 		}
+		return true;
 	}
 
+	// Pushes and attacks for each pawn, restricted by the check mask and by
+	// any pin on the pawn
+	// Captures and promotions are only added for the CAPTURES type and the
+	// remaining pushes for the QUIETS type
 	// Based on a tutorial in C++ by Peter Ellis Jones on
 	// https://github.com/peterellisjones/Checkmate
-	private static void addPawnPushes(Game board, LinkedList<Move> moveList, int side) {
+	private static int addPawnMoves(Game board, int[] moves, int count, int side, int kingIndex,
+			long checkMask, long pinned, int type) {
+		boolean captures = type != QUIETS;
+		boolean quiets = type != CAPTURES;
+		long[] bitboards = board.getBitBoards();
+		int enemy = side ^ 1;
 		// If side is 0, then the piece is white
-		int pieceType = (side == 0) ? CoreConstants.WHITE_PAWN : CoreConstants.BLACK_PAWN;
-		// Offsets used to add correct moves for white and black
-		int[] offsets = { 8, 56 };
+		int pawnType = (side == 0) ? CoreConstants.WHITE_PAWN : CoreConstants.BLACK_PAWN;
+		// White pawns move up the board and black pawns move down
+		int forward = (side == 0) ? 8 : -8;
 		// Masks allow promotion moves to be separated
-		long[] promotions_mask = { CoreConstants.ROW_8, CoreConstants.ROW_1 };
-		// If a white can move to row 3, then it might be able to double push
-		long[] startWithMask = { CoreConstants.ROW_3, CoreConstants.ROW_6 };
-		int offset = offsets[side];
-		long pawns = board.getBitBoards()[side + CoreConstants.WHITE_PAWN];
-		// Empty squares i.e. the squares where there is neither a white piece
-		// nor a black piece
-		// Hence NOT (white OR black)
-		long emptySquares = ~(board.getBitBoards()[CoreConstants.WHITE]
-				| board.getBitBoards()[CoreConstants.BLACK]);
-		// Circular left shift is equivalent to moving each pawn forward one
-		// square
-		// If it is empty then the push is valid
-		long pushes = (side == 0 ? (pawns << 8) : (pawns >>> 8)) & emptySquares;
-		addMovesWithOffset(pieceType, pushes & ~promotions_mask[side], moveList, false, false,
-				CoreConstants.noCastle, offset);
-		// Isolate which moves are promotions
-		long promotions = pushes & promotions_mask[side];
-		addMovesWithOffset(pieceType, promotions, moveList, false, true, CoreConstants.noCastle,
-				offset);
-		// If the push led to row 3 if white or row 8 if black and the square
-		// ahead is empty then double push is possible
-		pushes &= startWithMask[side];
-		long doublePushes = (side == 0 ? (pushes << 8) : (pushes >>> 8)) & emptySquares;
-		addMovesWithOffset(pieceType, doublePushes, moveList, false, false, CoreConstants.noCastle,
-				offset + offset);
+		long promotionsMask = (side == 0) ? CoreConstants.ROW_8 : CoreConstants.ROW_1;
+		// If a white pawn starts on row 2, then it might be able to double push
+		long startMask = (side == 0) ? CoreConstants.ROW_2 : CoreConstants.ROW_7;
+		long occupied = bitboards[CoreConstants.WHITE] | bitboards[CoreConstants.BLACK];
+		long pawnBoard = bitboards[pawnType];
+		while (pawnBoard != 0) {
+			int from = Game.bitScanForward(pawnBoard);
+			long allowed = checkMask & pinMask(from, kingIndex, pinned);
+			// A push is valid if the square ahead is empty
+			int to = from + forward;
+			if ((occupied & (1L << to)) == 0) {
+				if ((allowed & (1L << to)) != 0) {
+					if (((1L << to) & promotionsMask) != 0) {
+						if (captures) {
+							count = addPromotions(board, pawnType, from, to, moves, count);
+						}
+					} else if (quiets) {
+						moves[count++] = MoveEncoding.create(pawnType, from, to,
+								CoreConstants.EMPTY, CoreConstants.EMPTY, CoreConstants.noCastle,
+								0);
+					}
+				}
+				// If the pawn has not moved yet and the second square ahead
+				// is empty then double push is possible
+				int doubleTo = to + forward;
+				if (quiets && ((1L << from) & startMask) != 0
+						&& (occupied & (1L << doubleTo)) == 0 && (allowed & (1L << doubleTo)) != 0) {
+					moves[count++] = MoveEncoding.create(pawnType, from, doubleTo,
+							CoreConstants.EMPTY, CoreConstants.EMPTY, CoreConstants.noCastle,
+							MoveEncoding.DOUBLE_PUSH);
+				}
+			}
+			if (!captures) {
+				pawnBoard &= pawnBoard - 1;
+				continue;
+			}
+			// Lookup pawn attacks from lookup table, only valid if it captures
+			// an enemy piece
+			long attacks = CoreConstants.PAWN_ATTACKS_TABLE[side][from] & bitboards[enemy] & allowed;
+			count = addMoves(board, pawnType, from, attacks & ~promotionsMask, moves, count,
+					CoreConstants.noCastle);
+			// Isolate the promotion moves
+			long promotions = attacks & promotionsMask;
+			while (promotions != 0) {
+				count = addPromotions(board, pawnType, from, Game.bitScanForward(promotions), moves,
+						count);
+				promotions &= promotions - 1;
+			}
+			// Isolate the en passant moves $\label{code:epMoveGen}$
+			long enPassant = CoreConstants.PAWN_ATTACKS_TABLE[side][from]
+					& board.getEpTargetSquares()[side];
+			if (enPassant != 0) {
+				int epTo = Game.bitScanForward(enPassant);
+				if (enPassantIsLegal(board, from, epTo, side, kingIndex)) {
+					// The pawn captured is the enemy pawn 'behind' the target
+					// square
+					moves[count++] = MoveEncoding.create(pawnType, from, epTo,
+							CoreConstants.WHITE_PAWN + enemy, CoreConstants.EMPTY,
+							CoreConstants.noCastle, MoveEncoding.EN_PASSANT);
+				}
+			}
+			pawnBoard &= pawnBoard - 1;
+		}
+		return count;
 	}
 
-	private static void addPawnAttacks(Game board, LinkedList<Move> moveList, int index,
-                                       int side) {
-		int enemy = (side == 0) ? 1 : 0;
-		int pawnType = (side == 0) ? CoreConstants.WHITE_PAWN : CoreConstants.BLACK_PAWN;
-		long[] promotions_mask = { CoreConstants.ROW_8, CoreConstants.ROW_1 };
-		// Lookup pawn attacks from lookup table, only valid if it captures an
-		// enemy piece
-		long attacks = CoreConstants.PAWN_ATTACKS_TABLE[side][index] & board.getBitBoards()[enemy];
-		addMoves(pawnType, index, attacks & ~promotions_mask[side], moveList, false, false,
-				CoreConstants.noCastle);
-		// Isolate the promotion moves
-		long promotions = attacks & promotions_mask[side];
-		addMoves(pawnType, index, promotions, moveList, false, true, CoreConstants.noCastle);
-		// Isolate the en passant moves $\label{code:epMoveGen}$
-		long enPassant = CoreConstants.PAWN_ATTACKS_TABLE[side][index]
-				& board.getEpTargetSquares()[side];
-		addMoves(pawnType, index, enPassant, moveList, true, false, CoreConstants.noCastle);
+	// En passant removes two pieces from the same row, which can expose the
+	// king to a slider in ways the pin detection does not see, e.g. a king
+	// and an enemy rook on the same row as both pawns
+	// So the occupancy after the capture is built and the king tested
+	// directly, this also covers captures which resolve (or fail to resolve)
+	// a check
+	private static boolean enPassantIsLegal(Game board, int from, int to, int side,
+			int kingIndex) {
+		if (kingIndex == -1) {
+			return true;
+		}
+		long[] bitboards = board.getBitBoards();
+		int enemy = side ^ 1;
+		int capturedIndex = to - ((side == 0) ? 8 : -8);
+		long captured = 1L << capturedIndex;
+		long occupied = (bitboards[CoreConstants.WHITE] | bitboards[CoreConstants.BLACK])
+				^ (1L << from) ^ captured | (1L << to);
+		long attackers = attackersTo(board, kingIndex, occupied, enemy) & ~captured;
+		return attackers == 0;
+	}
+
+	// The lookup tables are filled by the static initialiser of CoreConstants,
+	// which the JVM runs exactly once, the first time the class is used, and
+	// publishes safely to every thread. Calling this only makes sure that has
+	// happened, e.g. before timing a search
+	public static void initialise() {
+		CoreConstants.initialise();
 	}
 
 	// Modified algorithm based on tutorial from
 	// http://www.rivalchess.com/magic-bitboards/
 	// Used to fill a lookup table for rook and bishop moves
 	// This is crucial as it allows for fast move generation
-	public static void generateMoveDatabase(boolean rook) {
-		long validMoves = 0;
-		int variations;
-		int varCount;
-		int index, i, j;
-		long mask;
-		int magicIndex;
-		int[] setBitsMask = new int[64];
-		int[] setBitsIndex = new int[64];
-		int bitCount = 0;
+	static void generateMoveDatabase(boolean rook) {
 		// Loop through each index in the board
-		for (index = 0; index < 64; index++) {
-
-			mask = rook ? CoreConstants.occupancyMaskRook[index]
+		for (int index = 0; index < 64; index++) {
+			long mask = rook ? CoreConstants.occupancyMaskRook[index]
 					: CoreConstants.occupancyMaskBishop[index];
-			getIndexSetBits(setBitsMask, mask);
-			bitCount = Long.bitCount(mask);
-			varCount = (int) (1L << bitCount);
-			// Go through each possible variation
-			for (i = 0; i < varCount; i++) {
-				CoreConstants.occupancyVariation[index][i] = 0;
-				getIndexSetBits(setBitsIndex, i);
-				for (j = 0; setBitsIndex[j] != -1; j++) {
-					CoreConstants.occupancyVariation[index][i] |= (1L << setBitsMask[setBitsIndex[j]]);
+			long magic = rook ? CoreConstants.magicNumbersRook[index]
+					: CoreConstants.magicNumbersBishop[index];
+			long shift = rook ? CoreConstants.magicShiftRook[index]
+					: CoreConstants.magicShiftBishop[index];
+			int offset = rook ? CoreConstants.magicOffsetRook[index]
+					: CoreConstants.magicOffsetBishop[index];
+			// Go through each possible variation of blockers, the next subset
+			// of the mask is found using the carry-rippler trick so no
+			// table of variations is needed
+			// https://www.chessprogramming.org/Traversing_Subsets_of_a_Set
+			// Then add moves to the lookup table, indexed by the offset of the
+			// square and a second index based on the precomputed magic numbers
+			long occupancy = 0;
+			do {
+				int magicIndex = (int) ((occupancy * magic) >>> shift);
+				CoreConstants.magicMoves[offset + magicIndex] = slidingAttacks(index, occupancy,
+						rook);
+				occupancy = (occupancy - mask) & mask;
+			} while (occupancy != 0);
+		}
+	}
+
+	// Generate moves for a rook or bishop with the given blockers, the moves
+	// along each ray stop at the first blocker
+	// Too slow for move generation, only used to fill the lookup table
+	static long slidingAttacks(int index, long occupancy, boolean rook) {
+		long validMoves = 0;
+		int j;
+		if (rook) {
+			for (j = index + 8; j < 64; j += 8) {
+				validMoves |= (1L << j);
+				if ((occupancy & (1L << j)) != 0) {
+					break;
 				}
 			}
-			// Generate moves for the piece considering each possible
-			// variation
-			// Then add moves to the lookup table
-			// Indexed by the the position of the piece and a second index based
-			// on the precomputed magic numbers
-			variations = (int) (1L << bitCount);
-			for (i = 0; i < variations; i++) {
-				validMoves = 0;
-				if (rook) {
-					magicIndex = (int) ((CoreConstants.occupancyVariation[index][i]
-							* CoreConstants.magicNumbersRook[index]) >>> CoreConstants.magicShiftRook[index]);
-					for (j = index + 8; j < 64; j += 8) {
-						validMoves |= (1L << j);
-						if ((CoreConstants.occupancyVariation[index][i] & (1L << j)) != 0) {
-							break;
-						}
-					}
-					for (j = index - 8; j >= 0; j -= 8) {
-						validMoves |= (1L << j);
-						if ((CoreConstants.occupancyVariation[index][i] & (1L << j)) != 0) {
-							break;
-						}
-					}
-					for (j = index + 1; j % 8 != 0; j++) {
-						validMoves |= (1L << j);
-						if ((CoreConstants.occupancyVariation[index][i] & (1L << j)) != 0) {
-							break;
-						}
-					}
-					for (j = index - 1; j % 8 != 7 && j >= 0; j--) {
-						validMoves |= (1L << j);
-						if ((CoreConstants.occupancyVariation[index][i] & (1L << j)) != 0) {
-							break;
-						}
-					}
-					CoreConstants.magicMovesRook[index][magicIndex] = validMoves;
-				} else {
-					magicIndex = (int) ((CoreConstants.occupancyVariation[index][i]
-							* CoreConstants.magicNumbersBishop[index]) >>> CoreConstants.magicShiftBishop[index]);
-					for (j = index + 9; j % 8 != 0 && j < 64; j += 9) {
-						validMoves |= (1L << j);
-						if ((CoreConstants.occupancyVariation[index][i] & (1L << j)) != 0) {
-							break;
-						}
-					}
-					for (j = index - 9; j % 8 != 7 && j >= 0; j -= 9) {
-						validMoves |= (1L << j);
-						if ((CoreConstants.occupancyVariation[index][i] & (1L << j)) != 0) {
-							break;
-						}
-					}
-					for (j = index + 7; j % 8 != 7 && j < 64; j += 7) {
-						validMoves |= (1L << j);
-						if ((CoreConstants.occupancyVariation[index][i] & (1L << j)) != 0) {
-							break;
-						}
-					}
-					for (j = index - 7; j % 8 != 0 && j >= 0; j -= 7) {
-						validMoves |= (1L << j);
-						if ((CoreConstants.occupancyVariation[index][i] & (1L << j)) != 0) {
-							break;
-						}
-					}
-					CoreConstants.magicMovesBishop[index][magicIndex] = validMoves;
-
+			for (j = index - 8; j >= 0; j -= 8) {
+				validMoves |= (1L << j);
+				if ((occupancy & (1L << j)) != 0) {
+					break;
+				}
+			}
+			for (j = index + 1; j % 8 != 0; j++) {
+				validMoves |= (1L << j);
+				if ((occupancy & (1L << j)) != 0) {
+					break;
+				}
+			}
+			for (j = index - 1; j % 8 != 7 && j >= 0; j--) {
+				validMoves |= (1L << j);
+				if ((occupancy & (1L << j)) != 0) {
+					break;
+				}
+			}
+		} else {
+			for (j = index + 9; j % 8 != 0 && j < 64; j += 9) {
+				validMoves |= (1L << j);
+				if ((occupancy & (1L << j)) != 0) {
+					break;
+				}
+			}
+			for (j = index - 9; j % 8 != 7 && j >= 0; j -= 9) {
+				validMoves |= (1L << j);
+				if ((occupancy & (1L << j)) != 0) {
+					break;
+				}
+			}
+			for (j = index + 7; j % 8 != 7 && j < 64; j += 7) {
+				validMoves |= (1L << j);
+				if ((occupancy & (1L << j)) != 0) {
+					break;
+				}
+			}
+			for (j = index - 7; j % 8 != 0 && j >= 0; j -= 7) {
+				validMoves |= (1L << j);
+				if ((occupancy & (1L << j)) != 0) {
+					break;
 				}
 			}
 		}
-	}
-
-	// Updates each index in the setbits array where the board has a set bit
-	static void getIndexSetBits(int[] setBits, long board) {
-		int onBits = 0;
-		while (board != 0) {
-			setBits[onBits] = Long.numberOfTrailingZeros(board);
-			board ^= (1L << setBits[onBits++]);
-		}
-		setBits[onBits] = -1;
+		return validMoves;
 	}
 
 	// Generate a lookup table for knight moves
-	public static void initialiseKnightLookupTable() {
+	static void initialiseKnightLookupTable() {
 		for (int square = 0; square < 64; square++) {
 			long target = 1L << square;
 			// Each direction of the knight moves considered
@@ -467,7 +656,7 @@ public class MoveGen {
 		}
 	}
 
-	public static void initialiseKingLookupTable() {
+	static void initialiseKingLookupTable() {
 		for (int square = 0; square < 64; square++) {
 			long target = 1L << square;
 
@@ -486,7 +675,7 @@ public class MoveGen {
 		}
 	}
 
-	public static void initialisePawnLookupTable() {
+	static void initialisePawnLookupTable() {
 		for (int side = 0; side <= 1; side++) {
 			for (int index = 0; index < 64; index++) {
 				long board = 1L << index;
@@ -524,4 +713,45 @@ public class MoveGen {
 		return result;
 	}
 
+	// Generate the lookup tables of squares between two squares and of the
+	// full line through two squares, both are empty if the squares do not
+	// share a row, column or diagonal
+	static void initialiseRayTables() {
+		// Column and row steps for each of the eight directions
+		int[] colSteps = { 1, -1, 0, 0, 1, -1, 1, -1 };
+		int[] rowSteps = { 0, 0, 1, -1, 1, -1, -1, 1 };
+		for (int square = 0; square < 64; square++) {
+			for (int direction = 0; direction < 8; direction++) {
+				// Opposite directions are stored next to each other
+				int opposite = direction ^ 1;
+				long line = (1L << square) | ray(square, colSteps[direction], rowSteps[direction])
+						| ray(square, colSteps[opposite], rowSteps[opposite]);
+				long between = 0;
+				int col = square % 8 + colSteps[direction];
+				int row = square / 8 + rowSteps[direction];
+				while (col >= 0 && col <= 7 && row >= 0 && row <= 7) {
+					int target = (row * 8) + col;
+					CoreConstants.BETWEEN[square][target] = between;
+					CoreConstants.LINE[square][target] = line;
+					between |= 1L << target;
+					col += colSteps[direction];
+					row += rowSteps[direction];
+				}
+			}
+		}
+	}
+
+	// All the squares from a square to the edge of the board in one direction
+	private static long ray(int square, int colStep, int rowStep) {
+		long result = 0;
+		int col = square % 8 + colStep;
+		int row = square / 8 + rowStep;
+		while (col >= 0 && col <= 7 && row >= 0 && row <= 7) {
+			result |= 1L << ((row * 8) + col);
+			col += colStep;
+			row += rowStep;
+		}
+		return result;
+	}
+
 }
@@ -0,0 +1,204 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class Perft {
+	// Perft counts the leaf nodes of the strictly legal game tree to a given
+	// depth, comparing against known results finds bugs in the move generator
+	// and in make/unmake $\label{code:perft}$
+	// See https://www.chessprogramming.org/Perft
+	private final PerftTable table;
+	private final int threads;
+
+	// No hashing, one thread per processor
+	public Perft() {
+		this(0, Runtime.getRuntime().availableProcessors());
+	}
+
+	// A hash size of 0 disables the transposition table
+	public Perft(int hashSizeMB, int threads) {
+		this.table = (hashSizeMB > 0) ? new PerftTable(hashSizeMB) : null;
+		this.threads = Math.max(1, threads);
+	}
+
+	public long perft(Game board, int depth) {
+		if (depth == 0) {
+			return 1;
+		}
+		long nodes = 0;
+		for (long count : divide(board, depth).values()) {
+			nodes += count;
+		}
+		return nodes;
+	}
+
+	// Returns the number of leaf nodes below each root move, in the order the
+	// moves are generated, comparing this against another engine narrows a
+	// bug down to a single move
+	// Each root move is counted as a separate task on a fork-join pool with
+	// its own copy of the board
+	public Map<String, Long> divide(Game board, int depth) {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		int[] moves = new int[CoreConstants.MAX_MOVES_PER_POSITION];
+		int noOfMoves = MoveGen.generateMoves(board, moves);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+			for (int i = 0; i < noOfMoves; i++) {
+				tasks.add(pool.submit(new RootMoveTask(new Game(board), moves[i], depth - 1)));
+			}
+			for (int i = 0; i < noOfMoves; i++) {
+				counts.put(MoveEncoding.toString(moves[i]), tasks.get(i).join());
+			}
+		} finally {
+			pool.shutdown();
+		}
+		return counts;
+	}
+
+	// Counts the tree below the position, moves for each depth are generated
+	// into their own buffer
+	private long count(Game board, int depth, int[][] moveBuffers) {
+		if (depth == 0) {
+			return 1;
+		}
+		long key = 0;
+		if (table != null && depth > 1) {
+			key = board.getKey();
+			long nodes = table.probe(key, depth);
+			if (nodes != -1) {
+				return nodes;
+			}
+		}
+		int[] moves = moveBuffers[depth];
+		int noOfMoves = MoveGen.generateMoves(board, moves);
+		// Bulk counting, the moves at the last ply are legal so don't need to
+		// be made to be counted
+		if (depth == 1) {
+			return noOfMoves;
+		}
+		long nodes = 0;
+		for (int i = 0; i < noOfMoves; i++) {
+			board.move(moves[i]);
+			nodes += count(board, depth - 1, moveBuffers);
+			board.undo();
+		}
+		if (table != null) {
+			table.store(key, depth, nodes);
+		}
+		return nodes;
+	}
+
+	private class RootMoveTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		private final Game board;
+		private final int move;
+		private final int depth;
+
+		RootMoveTask(Game board, int move, int depth) {
+			this.board = board;
+			this.move = move;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Long compute() {
+			board.move(move);
+			return count(board, depth, new int[depth + 1][CoreConstants.MAX_MOVES_PER_POSITION]);
+		}
+	}
+
+	// Transposition table for node counts, shared by every thread without
+	// locking. Each entry is stored as the key XOR the data alongside the
+	// data, so an entry torn by two threads writing at once fails the key
+	// check instead of returning the wrong count
+	// Based on https://www.chessprogramming.org/Shared_Hash_Table#Lockless
+	private static class PerftTable {
+		private final long[] keys;
+		private final long[] data;
+		private final int mask;
+
+		PerftTable(int sizeMB) {
+			// Two longs per entry, rounded down to a power of two
+			int entries = Integer.highestOneBit((int) Math.min(1 << 30,
+					(long) sizeMB * 1024 * 1024 / 16));
+			keys = new long[entries];
+			data = new long[entries];
+			mask = entries - 1;
+		}
+
+		// Returns -1 if the position has not been counted to this depth
+		long probe(long key, int depth) {
+			int index = (int) key & mask;
+			long entry = data[index];
+			if ((keys[index] ^ entry) == key && (entry & 0xFF) == depth) {
+				return entry >>> 8;
+			}
+			return -1;
+		}
+
+		// Always replaces, the node count is packed above the depth
+		void store(long key, int depth, long nodes) {
+			int index = (int) key & mask;
+			long entry = (nodes << 8) | depth;
+			data[index] = entry;
+			keys[index] = key ^ entry;
+		}
+	}
+
+	// Headless perft, e.g.
+	// java -cp target/classes core.Perft 6 "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -" --divide
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.out.println("Usage: core.Perft <depth> [fen] [--divide] [--hash <MB>] "
+					+ "[--threads <n>]");
+			return;
+		}
+		int depth = Integer.parseInt(args[0]);
+		String fen = null;
+		boolean divide = false;
+		int hashSizeMB = 64;
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("--divide")) {
+				divide = true;
+			} else if (args[i].equals("--hash")) {
+				hashSizeMB = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--threads")) {
+				threads = Integer.parseInt(args[++i]);
+			} else {
+				fen = args[i];
+			}
+		}
+		// Initialise the lookup tables used by the move generator
+		MoveGen.initialise();
+		System.out.println("Startup: " + (CoreConstants.initialisationTime / 1_000_000) + "ms");
+		Game board = new Game();
+		if (fen == null) {
+			board.resetToInitialSetup();
+		} else {
+			board.loadFen(fen);
+		}
+		Perft perft = new Perft(hashSizeMB, threads);
+		long startTime = System.currentTimeMillis();
+		long nodes = 0;
+		if (divide) {
+			for (Map.Entry<String, Long> entry : perft.divide(board, depth).entrySet()) {
+				System.out.println(entry.getKey() + ": " + entry.getValue());
+				nodes += entry.getValue();
+			}
+		} else {
+			nodes = perft.perft(board, depth);
+		}
+		long time = Math.max(1, System.currentTimeMillis() - startTime);
+		System.out.println("Nodes: " + nodes);
+		System.out.println("Time: " + time + "ms");
+		System.out.println("NPS: " + (nodes * 1000 / time));
+	}
+}
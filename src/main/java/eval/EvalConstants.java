@@ -10,6 +10,81 @@ public class EvalConstants {
 	// Max search depth
 	public static final double MAX_DEPTH = 15;
 	public static final double MIN_DEPTH = 2;
+	// Max distance from the root, sizes the per-ply buffers used by the search
+	public static final int MAX_PLY = 64;
+	// Bound on every score, larger than any evaluation
+	public static final int INFINITY = 1_000_000;
+	// Score for delivering checkmate, reduced by the distance from the root
+	public static final int MATE = 100_000;
+	// Half width of the first aspiration window (centipawns), and the depth
+	// from which windows are used
+	public static final int ASPIRATION_WINDOW = 50;
+	public static final int ASPIRATION_MIN_DEPTH = 3;
+	// The clock is read once per this many nodes (plus one), must be a power of
+	// two minus one
+	public static final int NODES_BETWEEN_TIME_CHECKS = 2047;
+	// Time management, when playing on a clock the time for a move is an
+	// equal share of the time left over this many moves, plus most of the
+	// increment. A hard move may use up to HARD_LIMIT_FACTOR times that, and
+	// MOVE_OVERHEAD (ms) is always left on the clock
+	public static final int DEFAULT_MOVES_TO_GO = 30;
+	public static final int HARD_LIMIT_FACTOR = 4;
+	public static final long MOVE_OVERHEAD = 50;
+	// The time for a move is halved once the best move has stayed the same for
+	// this many iterations, and doubled when the score drops by more than the
+	// margin
+	public static final int STABLE_ITERATIONS = 4;
+	public static final int SCORE_DROP_MARGIN = 30;
+	// Margin added to the value of a capture in the quiescence search, a
+	// capture which can't bring the score within this of alpha is skipped
+	public static final int DELTA_MARGIN = 200;
+	// Remaining depth at or below which captures losing material (by static
+	// exchange evaluation) are skipped
+	public static final int SEE_PRUNING_DEPTH = 2;
+	// Remaining depth needed to try a null move, and to verify a null move
+	// cutoff with a reduced search
+	public static final int NULL_MOVE_MIN_DEPTH = 2;
+	public static final int NULL_MOVE_VERIFY_DEPTH = 8;
+	// Late move reductions start at this remaining depth, for moves after the
+	// first LMR_MIN_MOVES
+	public static final int LMR_MIN_DEPTH = 3;
+	public static final int LMR_MIN_MOVES = 3;
+	// Remaining depth at or below which late quiet moves are pruned by move
+	// count
+	public static final int MOVE_COUNT_PRUNING_DEPTH = 3;
+	// Extensions are measured in fractions of a ply, a move is searched a ply
+	// deeper once the extensions along its line add up to ONE_PLY
+	public static final int ONE_PLY = 4;
+	public static final int CHECK_EXTENSION = 4;
+	public static final int SINGLE_REPLY_EXTENSION = 3;
+	public static final int RECAPTURE_EXTENSION = 2;
+	public static final int PAWN_PUSH_EXTENSION = 3;
+	// Most each kind of extension can add to a line, in plies
+	public static final int CHECK_EXTENSION_LIMIT = 6;
+	public static final int SINGLE_REPLY_EXTENSION_LIMIT = 4;
+	public static final int RECAPTURE_EXTENSION_LIMIT = 2;
+	public static final int PAWN_PUSH_EXTENSION_LIMIT = 2;
+	// Futility pruning skips quiet moves at remaining depth 1 or 2 when the
+	// static evaluation plus the margin for that depth is no better than alpha
+	public static final int[] FUTILITY_MARGIN = { 0, 200, 500 };
+	// Reverse futility pruning returns the static evaluation when it beats
+	// beta by this much per ply of remaining depth, up to the given depth
+	public static final int REVERSE_FUTILITY_MARGIN = 120;
+	public static final int REVERSE_FUTILITY_DEPTH = 3;
+	// Razoring drops into the quiescence search when the static evaluation is
+	// this much per ply below alpha, up to the given depth
+	public static final int RAZOR_MARGIN = 300;
+	public static final int RAZOR_DEPTH = 2;
+	// Bound on the history scores used to order quiet moves
+	public static final int HISTORY_MAX = 16384;
+	// Default size of the transposition table (MB)
+	public static final int HASH_SIZE_MB = 64;
+	// Default number of threads searching, helper threads are only used when
+	// asked for with the Search constructor or Search.setThreads
+	public static final int SEARCH_THREADS = 1;
+	// Remaining depth needed at a node before ParallelSearch splits its moves
+	// between threads, shallower subtrees are too small to be worth a task
+	public static final int SPLIT_MIN_DEPTH = 2;
 
 	// New identifiers used for colours and piece types
 	public static final int WHITE = 1;
@@ -20,6 +95,9 @@ public class EvalConstants {
 	public static final int ROOK = 4;
 	public static final int QUEEN = 5;
 	public static final int KING = 6;
+	// Material value of each piece, indexed by the piece ids in CoreConstants
+	public static final int[] PIECE_VALUES = { 0, 0, 100, 100, 320, 320, 500, 500, 330, 330, 900,
+			900, 20000, 20000 };
 
 	// Piece Square tables from the Chess Programming wikispace
 	// https://chessprogramming.wikispaces.com/Simplified+evaluation+function
@@ -7,8 +7,8 @@ public class Evaluation extends EvalConstants {
 
 	public static double evaluate(Game board, int color) {
 		// Calculate the number of each type of piece per side $\label{code:evalFunction}$
-		int whiteKing = board.checkmate(CoreConstants.WHITE, CoreConstants.WHITE) ? 0 : 1;
-		int blackKing = board.checkmate(CoreConstants.BLACK, CoreConstants.BLACK) ? 0 : 1;
+		// Checkmate isn't scored here, the search finds it when there are no
+		// legal moves
 		int whiteQueens = Game.hammingWeight(board.getBitBoards()[CoreConstants.WHITE_QUEEN]);
 		int blackQueens = Game.hammingWeight(board.getBitBoards()[CoreConstants.BLACK_QUEEN]);
 		int whiteRooks = Game.hammingWeight(board.getBitBoards()[CoreConstants.WHITE_ROOK]);
@@ -20,7 +20,6 @@ public class Evaluation extends EvalConstants {
 		int whitePawns = Game.hammingWeight(board.getBitBoards()[CoreConstants.WHITE_PAWN]);
 		int blackPawns = Game.hammingWeight(board.getBitBoards()[CoreConstants.BLACK_PAWN]);
 		// Workout the difference between how many pieces each side has per type
-		int kDiff = whiteKing - blackKing;
 		int qDiff = whiteQueens - blackQueens;
 		int rDiff = whiteRooks - blackRooks;
 		int bDiff = whiteBishops - blackBishops;
@@ -28,7 +27,7 @@ public class Evaluation extends EvalConstants {
 		int pDiff = whitePawns - blackPawns;
 
 		// Work out the difference between the material score of white and black
-		int materialScore = (20000 * kDiff) + (900 * qDiff) + (500 * rDiff) + (330 * bDiff)
+		int materialScore = (900 * qDiff) + (500 * rDiff) + (330 * bDiff)
 				+ (320 * nDiff) + (100 * pDiff);
 
 		// Workout if we have reached the endgame yet
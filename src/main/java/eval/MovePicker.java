@@ -0,0 +1,289 @@
+package eval;
+
+import core.CoreConstants;
+import core.Game;
+import core.MoveEncoding;
+import core.MoveGen;
+
+public class MovePicker {
+	// Moves are handed out in stages, only generating the next group of moves
+	// when the previous one has been used up, so that a cutoff from an early
+	// move saves the work of generating and ordering the rest
+	// Based on
+	// https://www.chessprogramming.org/Move_Generation#Staged_Move_Generation
+	// Each group is scored once when generated, then the best remaining move
+	// is picked out each time one is asked for, as after a cutoff the rest
+	// never need to be sorted. Nothing is allocated and no moves are made
+	// See https://www.chessprogramming.org/Move_Ordering
+	private static final int TT_MOVE = 0;
+	private static final int GENERATE_CAPTURES = 1;
+	private static final int CAPTURES = 2;
+	private static final int FIRST_KILLER = 3;
+	private static final int SECOND_KILLER = 4;
+	private static final int COUNTER_MOVE = 5;
+	private static final int GENERATE_QUIETS = 6;
+	private static final int QUIETS = 7;
+	private static final int BAD_CAPTURES = 8;
+	// When in check every move is generated at once by the evasion generator
+	private static final int EVASION_TT_MOVE = 9;
+	private static final int GENERATE_EVASIONS = 10;
+	private static final int EVASIONS = 11;
+	// Quiescence search only looks at captures and promotions, unless in check
+	private static final int QUIESCENCE_TT_MOVE = 12;
+	private static final int GENERATE_QUIESCENCE = 13;
+	private static final int QUIESCENCE_CAPTURES = 14;
+	private static final int DONE = 15;
+
+	// Each picker owns its buffers, the search keeps one picker per ply
+	private int[] moves = new int[CoreConstants.MAX_MOVES_PER_POSITION];
+	private int[] scores = new int[CoreConstants.MAX_MOVES_PER_POSITION];
+	// Captures which lose material are put aside until after the quiet moves
+	private int[] badCaptures = new int[CoreConstants.MAX_MOVES_PER_POSITION];
+	private StaticExchange exchange = new StaticExchange();
+	// History scores of quiet moves, indexed by piece and destination, owned
+	// by the search and shared by all of its pickers
+	private final int[][] history;
+	private Game board;
+	private int ttMove;
+	private int firstKiller;
+	private int secondKiller;
+	private int counterMove;
+	private int stage;
+	private boolean inCheck;
+	private int index;
+	private int noOfMoves;
+	private int badIndex;
+	private int noOfBadCaptures;
+	// Evasions may be generated early to count them, see countEvasions
+	private boolean evasionsGenerated;
+
+	public MovePicker(int[][] history) {
+		this.history = history;
+	}
+
+	// Prepares the picker for a new position, nothing is generated until
+	// the moves are asked for
+	public void init(Game board, int ttMove, int firstKiller, int secondKiller,
+			int counterMove) {
+		this.board = board;
+		this.ttMove = ttMove;
+		this.firstKiller = firstKiller;
+		this.secondKiller = secondKiller;
+		this.counterMove = counterMove;
+		this.inCheck = board.check(board.toMove);
+		this.stage = inCheck ? EVASION_TT_MOVE : TT_MOVE;
+		this.index = 0;
+		this.noOfMoves = 0;
+		this.badIndex = 0;
+		this.noOfBadCaptures = 0;
+		this.evasionsGenerated = false;
+	}
+
+	// Prepares the picker for a position in the quiescence search, when in
+	// check every evasion is returned so that mate can be seen. Otherwise
+	// captures which lose material are never returned
+	public void initQuiescence(Game board, int ttMove) {
+		init(board, ttMove, MoveEncoding.NO_MOVE, MoveEncoding.NO_MOVE, MoveEncoding.NO_MOVE);
+		if (!inCheck) {
+			stage = QUIESCENCE_TT_MOVE;
+		}
+	}
+
+	// Returns the next move to search, or NO_MOVE once every legal move has
+	// been returned
+	public int next() {
+		while (true) {
+			switch (stage) {
+			case TT_MOVE:
+			case EVASION_TT_MOVE:
+				// The move from the transposition table may come from a
+				// different position with the same hash, so check it first
+				stage++;
+				if (MoveGen.isLegal(board, ttMove)) {
+					return ttMove;
+				}
+				break;
+			case QUIESCENCE_TT_MOVE:
+				stage++;
+				if ((MoveEncoding.isCapture(ttMove) || MoveEncoding.isPromotion(ttMove))
+						&& MoveGen.isLegal(board, ttMove)) {
+					return ttMove;
+				}
+				break;
+			case GENERATE_CAPTURES:
+			case GENERATE_QUIESCENCE:
+				noOfMoves = MoveGen.generateCaptures(board, moves);
+				scoreCaptures();
+				stage++;
+				break;
+			case CAPTURES:
+			case QUIESCENCE_CAPTURES:
+				// Captures which lose material are put aside, only checked
+				// when picked as most captures are never reached
+				while (index < noOfMoves) {
+					int move = pickBest();
+					if (move == ttMove) {
+						continue;
+					}
+					if (losesMaterial(move)) {
+						if (stage == CAPTURES) {
+							badCaptures[noOfBadCaptures++] = move;
+						}
+					} else {
+						return move;
+					}
+				}
+				stage = (stage == CAPTURES) ? FIRST_KILLER : DONE;
+				break;
+			case QUIETS:
+			case EVASIONS:
+				while (index < noOfMoves) {
+					int move = pickBest();
+					if (move != ttMove && (stage != QUIETS || (move != firstKiller
+							&& move != secondKiller && move != counterMove))) {
+						return move;
+					}
+				}
+				stage = (stage == QUIETS) ? BAD_CAPTURES : DONE;
+				break;
+			case BAD_CAPTURES:
+				if (badIndex < noOfBadCaptures) {
+					return badCaptures[badIndex++];
+				}
+				stage = DONE;
+				break;
+			case FIRST_KILLER:
+				// Killers are quiet moves which caused a cutoff at the same ply
+				// in a sibling position, so are often good here too
+				stage++;
+				if (firstKiller != ttMove && MoveGen.isLegal(board, firstKiller)) {
+					return firstKiller;
+				}
+				break;
+			case SECOND_KILLER:
+				stage++;
+				if (secondKiller != ttMove && secondKiller != firstKiller
+						&& MoveGen.isLegal(board, secondKiller)) {
+					return secondKiller;
+				}
+				break;
+			case COUNTER_MOVE:
+				// The quiet move which last refuted the opponent's previous move
+				stage++;
+				if (counterMove != ttMove && counterMove != firstKiller
+						&& counterMove != secondKiller && !MoveEncoding.isCapture(counterMove)
+						&& MoveGen.isLegal(board, counterMove)) {
+					return counterMove;
+				}
+				break;
+			case GENERATE_QUIETS:
+				noOfMoves = MoveGen.generateQuiets(board, moves);
+				scoreQuiets();
+				stage++;
+				break;
+			case GENERATE_EVASIONS:
+				if (!evasionsGenerated) {
+					generateEvasions();
+				}
+				stage++;
+				break;
+			default:
+				return MoveEncoding.NO_MOVE;
+			}
+		}
+	}
+
+	// The search uses this to tell checkmate from stalemate once there are no
+	// moves left
+	public boolean isInCheck() {
+		return inCheck;
+	}
+
+	// The number of legal moves in check, the evasions are generated now if
+	// they haven't been already, and still returned in the usual order
+	public int countEvasions() {
+		if (!evasionsGenerated) {
+			generateEvasions();
+		}
+		return noOfMoves;
+	}
+
+	private void generateEvasions() {
+		noOfMoves = MoveGen.generateEvasions(board, moves);
+		scoreEvasions();
+		evasionsGenerated = true;
+	}
+
+	// True if the last move returned is a capture which loses material, the
+	// search may skip these near the leaves
+	public boolean isLosingCapture() {
+		return stage == BAD_CAPTURES;
+	}
+
+	// Captures are scored by the most valuable victim, then the least valuable
+	// attacker (MVV-LVA), promotions by the piece promoted to
+	// See https://www.chessprogramming.org/MVV-LVA
+	private void scoreCaptures() {
+		index = 0;
+		for (int i = 0; i < noOfMoves; i++) {
+			scores[i] = captureScore(moves[i]);
+		}
+	}
+
+	private static int captureScore(int move) {
+		return EvalConstants.PIECE_VALUES[MoveEncoding.getCaptured(move)]
+				+ EvalConstants.PIECE_VALUES[MoveEncoding.getPromotion(move)]
+				- (MoveEncoding.getPiece(move) >> 1);
+	}
+
+	// Quiet moves don't change the material, so are ordered by how often they
+	// have caused cutoffs elsewhere in the tree
+	private void scoreQuiets() {
+		index = 0;
+		for (int i = 0; i < noOfMoves; i++) {
+			scores[i] = history[MoveEncoding.getPiece(moves[i])][MoveEncoding.getTo(moves[i])];
+		}
+	}
+
+	// Evasions which capture come first, as in the main stages, then the
+	// quiet evasions by history
+	private void scoreEvasions() {
+		index = 0;
+		for (int i = 0; i < noOfMoves; i++) {
+			int move = moves[i];
+			if (MoveEncoding.isCapture(move) || MoveEncoding.isPromotion(move)) {
+				scores[i] = EvalConstants.HISTORY_MAX + captureScore(move);
+			} else {
+				scores[i] = history[MoveEncoding.getPiece(move)][MoveEncoding.getTo(move)];
+			}
+		}
+	}
+
+	// Partial selection sort, swaps the best of the moves left to the front
+	// and returns it
+	private int pickBest() {
+		int best = index;
+		for (int i = index + 1; i < noOfMoves; i++) {
+			if (scores[i] > scores[best]) {
+				best = i;
+			}
+		}
+		int move = moves[best];
+		moves[best] = moves[index];
+		scores[best] = scores[index];
+		moves[index++] = move;
+		return move;
+	}
+
+	// A capture of a piece worth at least as much as the capturing piece
+	// can't lose material, so the exchange only has to be worked out for the
+	// rest
+	private boolean losesMaterial(int move) {
+		if (!MoveEncoding.isPromotion(move)
+				&& EvalConstants.PIECE_VALUES[MoveEncoding.getPiece(move)]
+						<= EvalConstants.PIECE_VALUES[MoveEncoding.getCaptured(move)]) {
+			return false;
+		}
+		return exchange.see(board, move) < 0;
+	}
+}
@@ -0,0 +1,477 @@
+package eval;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import core.CoreConstants;
+import core.Game;
+import core.Move;
+import core.MoveEncoding;
+import core.MoveGen;
+
+public class ParallelSearch implements AutoCloseable {
+	// Parallel alpha-beta using the Young Brothers Wait Concept, an
+	// alternative to the shared hash table parallelism of Search. At a split
+	// point the first move (the eldest brother) is searched on its own to
+	// set alpha, then the rest of the moves are searched at once as tasks on
+	// a fork-join pool. The tasks share the bounds of the split point, and
+	// once one of them causes a cutoff the others abort
+	// Splits happen at the root and at the nodes along the leftmost branch of
+	// the tree (PV nodes), where every move has to be searched anyway
+	// See https://www.chessprogramming.org/Young_Brothers_Wait_Concept
+	// The leaves are searched with the quiescence search of Search, and the
+	// time is managed by a TimeManager as in Search. The pool's threads are
+	// kept until close() is called
+	private final TranspositionTable hashtable;
+	private final ForkJoinPool pool;
+	private final int threads;
+	// Without the hash table the score at a fixed depth does not depend on the
+	// number of threads or the order the tasks run in, which is used for
+	// regression testing
+	private boolean useHash = true;
+	private boolean printInfo;
+	// Each task takes a context (move pickers, killers and history) for as
+	// long as it runs, a thread joining a task may run another task in the
+	// meantime so contexts can't belong to threads
+	private final ConcurrentLinkedQueue<Context> freeContexts = new ConcurrentLinkedQueue<>();
+	private final List<Context> contexts = new ArrayList<>();
+	private int[] rootMoves = new int[CoreConstants.MAX_MOVES_PER_POSITION];
+	private int noOfRootMoves;
+	private int score;
+	private int completedDepth;
+	private TimeManager timeManager;
+	private int currentDepth;
+	private volatile boolean stopped;
+
+	public ParallelSearch(int hashSizeMB, int threads) {
+		this.threads = Math.max(1, threads);
+		hashtable = new TranspositionTable(hashSizeMB);
+		pool = new ForkJoinPool(this.threads);
+	}
+
+	public void setUseHash(boolean useHash) {
+		this.useHash = useHash;
+		// Contexts made before hold the old choice for their leaves
+		synchronized (contexts) {
+			freeContexts.clear();
+			contexts.clear();
+		}
+	}
+
+	public void setPrintInfo(boolean printInfo) {
+		this.printInfo = printInfo;
+	}
+
+	public void clearHash() {
+		hashtable.clear();
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	// Shuts down the pool, the search can't be used afterwards
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+	// Searches for up to thinkingTime ms, and no deeper than maxDepth
+	public Move rootNegamax(Game board, int color, long thinkingTime, int maxDepth) {
+		TimeManager timeManager = TimeManager.moveTime(thinkingTime);
+		timeManager.setDepthLimit(maxDepth);
+		return rootNegamax(board, color, timeManager);
+	}
+
+	// Iterative deepening as in Search, but each iteration is searched in
+	// parallel with a full window
+	public Move rootNegamax(Game board, int color, TimeManager timeManager) {
+		this.timeManager = timeManager;
+		timeManager.start();
+		stopped = false;
+		score = 0;
+		completedDepth = 0;
+		synchronized (contexts) {
+			for (Context context : contexts) {
+				context.nodes = 0;
+				context.leaves.resetNodes();
+				Search.ageHistory(context.history);
+			}
+		}
+		hashtable.newSearch();
+		noOfRootMoves = MoveGen.generateMoves(board, rootMoves);
+		if (noOfRootMoves == 0) {
+			return null;
+		}
+		// A forced move needs no thought
+		if (noOfRootMoves == 1) {
+			return new Move(rootMoves[0]);
+		}
+		for (currentDepth = 1; currentDepth <= timeManager.getDepthLimit(); currentDepth++) {
+			RootTask root = new RootTask(new Game(board), currentDepth, color);
+			pool.invoke(root);
+			// An unfinished iteration is still used if another move was fully
+			// searched and beat the best move of the last iteration
+			if (root.bestMove != MoveEncoding.NO_MOVE) {
+				moveToFront(root.bestMove);
+			}
+			if (stopped) {
+				break;
+			}
+			score = root.bestValue;
+			completedDepth = currentDepth;
+			if (printInfo) {
+				System.out.println("DEPTH " + currentDepth + " SCORE " + score + " NODES "
+						+ getNodes() + " BEST " + MoveEncoding.toString(rootMoves[0]));
+			}
+			if (Math.abs(score) >= EvalConstants.MATE - EvalConstants.MAX_PLY
+					|| !timeManager.nextIteration(currentDepth, rootMoves[0], score)) {
+				break;
+			}
+		}
+		if (printInfo) {
+			System.out.println("TIME TO MAKE MOVE: " + timeManager.getElapsed());
+		}
+		return new Move(rootMoves[0]);
+	}
+
+	// The root is always a split point, the best move of the last iteration is
+	// searched first
+	private class RootTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Game board;
+		private final int depth;
+		private final int color;
+		int bestValue;
+		int bestMove = MoveEncoding.NO_MOVE;
+
+		RootTask(Game board, int depth, int color) {
+			this.board = board;
+			this.depth = depth;
+			this.color = color;
+		}
+
+		@Override
+		protected void compute() {
+			Context context = acquire();
+			try {
+				board.move(rootMoves[0]);
+				int v = -search(board, context, -EvalConstants.INFINITY, EvalConstants.INFINITY,
+						depth - 1, 1, -color, true, null);
+				board.undo();
+				if (stopped) {
+					return;
+				}
+				SplitPoint sp = new SplitPoint(null, v, EvalConstants.INFINITY, rootMoves[0]);
+				split(sp, board, rootMoves, 1, noOfRootMoves, depth, 0, color);
+				bestValue = sp.bestValue;
+				bestMove = sp.bestMove;
+			} finally {
+				release(context);
+			}
+		}
+	}
+
+	// Color Factor: 1 for white, -1 for black
+	// Scores are from the point of view of the side to move. Parent is the
+	// split point the node is below, if any, and the search gives up as soon
+	// as it or a split point above it has a cutoff
+	private int search(Game board, Context context, int alpha, int beta, int depth, int ply,
+			int colorFactor, boolean pvNode, SplitPoint parent) {
+		if ((++context.nodes & EvalConstants.NODES_BETWEEN_TIME_CHECKS) == 0
+				&& timeManager.shouldStop(getNodes())) {
+			stopped = true;
+		}
+		if (aborted(parent)) {
+			return 0;
+		}
+		int alphaOrig = alpha;
+		int ttMove = MoveEncoding.NO_MOVE;
+		if (useHash) {
+			long tEntry = hashtable.probe(board.getKey());
+			if (tEntry != 0) {
+				ttMove = TranspositionTable.getMove(tEntry);
+				if (TranspositionTable.getDepth(tEntry) >= depth) {
+					int score = Search.scoreFromTable(TranspositionTable.getScore(tEntry), ply);
+					int bound = TranspositionTable.getBound(tEntry);
+					if (bound == TranspositionTable.EXACT) {
+						return score;
+					} else if (bound == TranspositionTable.LOWERBOUND) {
+						alpha = Math.max(alpha, score);
+					} else if (bound == TranspositionTable.UPPERBOUND) {
+						beta = Math.min(beta, score);
+					}
+					if (alpha >= beta) {
+						return score;
+					}
+				}
+			}
+		}
+		// The leaves are searched by the context's own quiescence search, on
+		// this task's board
+		if (depth == 0) {
+			return context.leaves.quiesce(alpha, beta, board, ply, colorFactor);
+		}
+		if (ply >= EvalConstants.MAX_PLY - 1) {
+			return (int) Evaluation.evaluate(board, colorFactor);
+		}
+		MovePicker picker = context.pickers[ply];
+		picker.init(board, ttMove, context.killers[ply][0], context.killers[ply][1],
+				MoveEncoding.NO_MOVE);
+		// The eldest brother is always searched first on its own
+		int move = picker.next();
+		if (move == MoveEncoding.NO_MOVE) {
+			return picker.isInCheck() ? -EvalConstants.MATE + ply : 0;
+		}
+		board.move(move);
+		int bestValue = -search(board, context, -beta, -alpha, depth - 1, ply + 1, -colorFactor,
+				pvNode, parent);
+		board.undo();
+		int bestMove = move;
+		if (aborted(parent)) {
+			return 0;
+		}
+		// Quiet moves searched here before a cutoff, to be penalised. At split
+		// points only the eldest brother is kept, the rest are searched by
+		// other tasks
+		int[] quiets = context.quietsSearched[ply];
+		int noOfQuiets = 0;
+		alpha = Math.max(alpha, bestValue);
+		if (alpha < beta) {
+			if (isQuiet(move)) {
+				quiets[noOfQuiets++] = move;
+			}
+			if (pvNode && threads > 1 && depth >= EvalConstants.SPLIT_MIN_DEPTH) {
+				// The rest of the moves are searched in parallel
+				int[] moves = new int[CoreConstants.MAX_MOVES_PER_POSITION];
+				int noOfMoves = 0;
+				while ((move = picker.next()) != MoveEncoding.NO_MOVE) {
+					moves[noOfMoves++] = move;
+				}
+				SplitPoint sp = new SplitPoint(parent, bestValue, beta, bestMove);
+				sp.alpha = alpha;
+				split(sp, board, moves, 0, noOfMoves, depth, ply, colorFactor);
+				if (aborted(parent)) {
+					return 0;
+				}
+				bestValue = sp.bestValue;
+				bestMove = sp.bestMove;
+				alpha = sp.alpha;
+			} else {
+				while ((move = picker.next()) != MoveEncoding.NO_MOVE) {
+					board.move(move);
+					int v = -search(board, context, -beta, -alpha, depth - 1, ply + 1,
+							-colorFactor, false, parent);
+					board.undo();
+					if (aborted(parent)) {
+						return 0;
+					}
+					if (v > bestValue) {
+						bestValue = v;
+						bestMove = move;
+					}
+					alpha = Math.max(alpha, v);
+					if (alpha >= beta) {
+						break;
+					}
+					if (isQuiet(move)) {
+						quiets[noOfQuiets++] = move;
+					}
+				}
+			}
+		}
+		if (bestValue >= beta && isQuiet(bestMove)) {
+			storeKiller(context, ply, bestMove);
+			Search.updateHistory(context.history, bestMove, quiets, noOfQuiets, depth);
+		}
+		if (useHash) {
+			int bound;
+			if (bestValue <= alphaOrig) {
+				bound = TranspositionTable.UPPERBOUND;
+			} else if (bestValue >= beta) {
+				bound = TranspositionTable.LOWERBOUND;
+			} else {
+				bound = TranspositionTable.EXACT;
+			}
+			hashtable.store(board.getKey(), Search.scoreToTable(bestValue, ply), depth, bound,
+					(bound == TranspositionTable.UPPERBOUND) ? MoveEncoding.NO_MOVE : bestMove);
+		}
+		return bestValue;
+	}
+
+	// Searches moves[start, end) as separate tasks, each on its own copy of the
+	// board, and waits for them all to finish
+	private void split(SplitPoint sp, Game board, int[] moves, int start, int end, int depth,
+			int ply, int colorFactor) {
+		List<SiblingTask> tasks = new ArrayList<>(end - start);
+		for (int i = start; i < end; i++) {
+			tasks.add(new SiblingTask(sp, new Game(board), moves[i], depth, ply, colorFactor));
+		}
+		ForkJoinTask.invokeAll(tasks);
+	}
+
+	private class SiblingTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final SplitPoint sp;
+		private final Game board;
+		private final int move;
+		private final int depth;
+		private final int ply;
+		private final int colorFactor;
+
+		SiblingTask(SplitPoint sp, Game board, int move, int depth, int ply, int colorFactor) {
+			this.sp = sp;
+			this.board = board;
+			this.move = move;
+			this.depth = depth;
+			this.ply = ply;
+			this.colorFactor = colorFactor;
+		}
+
+		@Override
+		protected void compute() {
+			if (aborted(sp)) {
+				return;
+			}
+			Context context = acquire();
+			try {
+				// Searched with the latest alpha, which may have been raised by
+				// a sibling
+				board.move(move);
+				int v = -search(board, context, -sp.beta, -sp.alpha, depth - 1, ply + 1,
+						-colorFactor, false, sp);
+				board.undo();
+				if (!aborted(sp)) {
+					sp.update(v, move);
+				}
+			} finally {
+				release(context);
+			}
+		}
+	}
+
+	// Bounds and best move shared by the tasks searching the moves of a node
+	private static class SplitPoint {
+		private final SplitPoint parent;
+		private final int beta;
+		private volatile int alpha;
+		private volatile boolean cutoff;
+		private int bestValue;
+		private int bestMove;
+
+		SplitPoint(SplitPoint parent, int bestValue, int beta, int bestMove) {
+			this.parent = parent;
+			this.alpha = bestValue;
+			this.beta = beta;
+			this.bestValue = bestValue;
+			this.bestMove = bestMove;
+		}
+
+		synchronized void update(int v, int move) {
+			if (v > bestValue) {
+				bestValue = v;
+				bestMove = move;
+			}
+			if (v > alpha) {
+				alpha = v;
+				if (v >= beta) {
+					cutoff = true;
+				}
+			}
+		}
+	}
+
+	// True once the search has run out of time or any split point above has
+	// had a cutoff, so the rest of the subtree is not needed
+	private boolean aborted(SplitPoint sp) {
+		if (stopped) {
+			return true;
+		}
+		for (; sp != null; sp = sp.parent) {
+			if (sp.cutoff) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void moveToFront(int move) {
+		for (int i = 0; i < noOfRootMoves; i++) {
+			if (rootMoves[i] == move) {
+				System.arraycopy(rootMoves, 0, rootMoves, 1, i);
+				rootMoves[0] = move;
+				return;
+			}
+		}
+	}
+
+	private static boolean isQuiet(int move) {
+		return !MoveEncoding.isCapture(move) && !MoveEncoding.isPromotion(move);
+	}
+
+	private void storeKiller(Context context, int ply, int move) {
+		if (context.killers[ply][0] != move) {
+			context.killers[ply][1] = context.killers[ply][0];
+			context.killers[ply][0] = move;
+		}
+	}
+
+	private Context acquire() {
+		Context context = freeContexts.poll();
+		if (context == null) {
+			context = new Context(useHash ? hashtable : null);
+			synchronized (contexts) {
+				contexts.add(context);
+			}
+		}
+		return context;
+	}
+
+	private void release(Context context) {
+		freeContexts.add(context);
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public int getCompletedDepth() {
+		return completedDepth;
+	}
+
+	// Nodes searched by every task, only exact once the search has finished
+	public long getNodes() {
+		long total = 0;
+		synchronized (contexts) {
+			for (Context context : contexts) {
+				total += context.nodes + context.leaves.getNodes();
+			}
+		}
+		return total;
+	}
+
+	private static class Context {
+		private final MovePicker[] pickers = new MovePicker[EvalConstants.MAX_PLY];
+		private final int[][] killers = new int[EvalConstants.MAX_PLY][2];
+		// Raised for quiet moves which caused cutoffs and lowered for those
+		// searched before them, halved at the start of each search
+		private final int[][] history = new int[CoreConstants.BLACK_KING + 1][64];
+		private final int[][] quietsSearched = new int[EvalConstants.MAX_PLY]
+				[CoreConstants.MAX_MOVES_PER_POSITION];
+		private long nodes;
+		// Quiescence search at the leaves, sharing the table unless hashing is
+		// turned off
+		private final Search leaves;
+
+		Context(TranspositionTable hashtable) {
+			leaves = new Search(hashtable);
+			for (int i = 0; i < pickers.length; i++) {
+				pickers[i] = new MovePicker(history);
+			}
+		}
+	}
+}
@@ -1,290 +1,1017 @@
 package eval;
 
-import java.util.Hashtable;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-
+import core.CoreConstants;
 import core.Game;
 import core.Move;
+import core.MoveEncoding;
 import core.MoveGen;
 
 public class Search {
-	// Transposition table $\label{code:hashtable}$
-	private Hashtable<Integer, TranspositionEntry> hashtable = new Hashtable<>();
+	// Transposition table, shared by every thread $\label{code:hashtable}$
+	private TranspositionTable hashtable;
+	// Lazy SMP, helper threads search the same position as the main thread
+	// with their own board and move ordering, and only share the
+	// transposition table. Helpers skip some depths so that they are not all
+	// searching the same iteration, and the entries they store let the main
+	// thread search faster
+	// See https://www.chessprogramming.org/Lazy_SMP
+	private final int id;
+	private final Search main;
+	private Search[] helpers = new Search[0];
+	private volatile boolean stopHelpers;
+	// Depths skipped by each helper, a helper skips the depth if
+	// ((depth + phase) / size) is odd. Based on the skip blocks used by
+	// Stockfish
+	private static final int[] SKIP_SIZE = { 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4,
+			4, 4, 4 };
+	private static final int[] SKIP_PHASE = { 0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4,
+			5, 6, 7 };
+	// Moves at the root are generated into a single buffer, below the root
+	// each ply has a move picker which owns its own buffers, so that the
+	// search does not allocate
+	private int[] rootMoves = new int[CoreConstants.MAX_MOVES_PER_POSITION];
+	private int[] rootScores = new int[CoreConstants.MAX_MOVES_PER_POSITION];
+	private int noOfRootMoves;
+	private MovePicker[] pickers = new MovePicker[EvalConstants.MAX_PLY];
+	// Two killer moves for each ply, quiet moves which caused a cutoff
+	private int[][] killers = new int[EvalConstants.MAX_PLY][2];
+	// History heuristic, a score for each piece and destination square which
+	// goes up when a quiet move causes a cutoff and down when a quiet move
+	// searched before it didn't
+	// See https://www.chessprogramming.org/History_Heuristic
+	private int[][] history = new int[CoreConstants.BLACK_KING + 1][64];
+	// Counter moves, the quiet move which last refuted each move of the
+	// opponent, indexed by the piece and destination of that move
+	// See https://www.chessprogramming.org/Countermove_Heuristic
+	private int[][] counterMoves = new int[CoreConstants.BLACK_KING + 1][64];
+	// Late move reductions, indexed by remaining depth and the number of moves
+	// searched already. Grows with the log of both, as in Stockfish
+	// See https://www.chessprogramming.org/Late_Move_Reductions
+	private static final int[][] REDUCTIONS = new int[EvalConstants.MAX_PLY]
+			[CoreConstants.MAX_MOVES_PER_POSITION];
+	static {
+		for (int depth = 1; depth < EvalConstants.MAX_PLY; depth++) {
+			for (int moves = 1; moves < CoreConstants.MAX_MOVES_PER_POSITION; moves++) {
+				REDUCTIONS[depth][moves] = (int) (0.75 + Math.log(depth) * Math.log(moves) / 2.25);
+			}
+		}
+	}
+	// Extensions, forcing moves are searched deeper so that the line can be
+	// followed to its end. Fractions of a ply left over at each ply are
+	// carried down the line, and each kind of extension has a limit on how
+	// much it can add to a line, kept as the fractions used on the current
+	// line so far
+	// See https://www.chessprogramming.org/Extensions
+	private static final int CHECK = 0;
+	private static final int SINGLE_REPLY = 1;
+	private static final int RECAPTURE = 2;
+	private static final int PAWN_PUSH = 3;
+	private static final int[] EXTENSION = { EvalConstants.CHECK_EXTENSION,
+			EvalConstants.SINGLE_REPLY_EXTENSION, EvalConstants.RECAPTURE_EXTENSION,
+			EvalConstants.PAWN_PUSH_EXTENSION };
+	private static final int[] EXTENSION_LIMIT = {
+			EvalConstants.CHECK_EXTENSION_LIMIT * EvalConstants.ONE_PLY,
+			EvalConstants.SINGLE_REPLY_EXTENSION_LIMIT * EvalConstants.ONE_PLY,
+			EvalConstants.RECAPTURE_EXTENSION_LIMIT * EvalConstants.ONE_PLY,
+			EvalConstants.PAWN_PUSH_EXTENSION_LIMIT * EvalConstants.ONE_PLY };
+	private int[] extensionUsed = new int[EXTENSION.length];
+	private int[] extensionCarry = new int[EvalConstants.MAX_PLY + 1];
+	// Quiet moves searched at each ply, so they can be penalised on a cutoff
+	private int[][] quietsSearched = new int[EvalConstants.MAX_PLY]
+			[CoreConstants.MAX_MOVES_PER_POSITION];
+	// How many cutoffs there were, and how many of them were from the first
+	// move searched, a measure of how good the move ordering is
+	private long cutoffs;
+	private long firstMoveCutoffs;
+	// Null moves are not tried below this ply while a null move is being
+	// verified
+	private int nullMoveMinPly;
+	// Triangular array of principal variations, row ply holds the best line
+	// found from that ply onwards, built from the row below as the search
+	// returns
+	// See https://www.chessprogramming.org/Triangular_PV-Table
+	private int[][] pvTable = new int[EvalConstants.MAX_PLY][EvalConstants.MAX_PLY];
+	private int[] pvLength = new int[EvalConstants.MAX_PLY];
+	// Result of the last completed iteration
+	private int[] principalVariation = new int[0];
+	private int score;
+	private int completedDepth;
+	// The search stops when the time manager says so, it is only asked every
+	// so many nodes
+	private long nodes;
+	private TimeManager timeManager;
+	// The time manager of the search running now, or null while idle, so
+	// stop() only reaches the search it was meant for
+	private TimeManager running;
+	private int currentDepth;
+	private boolean stopped;
+	private boolean printInfo;
+	private SearchStrategy strategy = SearchStrategy.PVS;
+	// Each of the pruning methods near the leaves can be turned off, to
+	// measure what it saves
+	private boolean futilityPruning = true;
+	private boolean reverseFutilityPruning = true;
+	private boolean razoring = true;
+	private boolean extensions = true;
+
+	public Search() {
+		this(EvalConstants.HASH_SIZE_MB, EvalConstants.SEARCH_THREADS);
+	}
+
+	public Search(int hashSizeMB) {
+		this(hashSizeMB, 1);
+	}
+
+	public Search(int hashSizeMB, int threads) {
+		this(new TranspositionTable(hashSizeMB), 0, null);
+		setThreads(threads);
+	}
+
+	// A search which is only used for its quiescence search, by the tasks of
+	// ParallelSearch. It never stops on its own, and without a table it
+	// neither probes nor stores
+	Search(TranspositionTable hashtable) {
+		this(hashtable, 0, null);
+	}
+
+	private Search(TranspositionTable hashtable, int id, Search main) {
+		this.hashtable = hashtable;
+		this.id = id;
+		this.main = (main == null) ? this : main;
+		for (int i = 0; i < pickers.length; i++) {
+			pickers[i] = new MovePicker(history);
+		}
+	}
+
+	// Number of threads searching, including the main thread
+	public void setThreads(int threads) {
+		helpers = new Search[Math.max(0, threads - 1)];
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i] = new Search(hashtable, i + 1, this);
+			helpers[i].strategy = strategy;
+			helpers[i].futilityPruning = futilityPruning;
+			helpers[i].reverseFutilityPruning = reverseFutilityPruning;
+			helpers[i].razoring = razoring;
+			helpers[i].extensions = extensions;
+		}
+	}
+
+	public int getThreads() {
+		return helpers.length + 1;
+	}
+
+	// Whether each completed iteration and the time taken are printed, off
+	// unless asked for
+	public void setPrintInfo(boolean printInfo) {
+		this.printInfo = printInfo;
+	}
+
+	public void setStrategy(SearchStrategy strategy) {
+		this.strategy = strategy;
+		for (Search helper : helpers) {
+			helper.strategy = strategy;
+		}
+	}
+
+	public SearchStrategy getStrategy() {
+		return strategy;
+	}
+
+	public void setFutilityPruning(boolean futilityPruning) {
+		this.futilityPruning = futilityPruning;
+		for (Search helper : helpers) {
+			helper.futilityPruning = futilityPruning;
+		}
+	}
+
+	public void setReverseFutilityPruning(boolean reverseFutilityPruning) {
+		this.reverseFutilityPruning = reverseFutilityPruning;
+		for (Search helper : helpers) {
+			helper.reverseFutilityPruning = reverseFutilityPruning;
+		}
+	}
+
+	public void setRazoring(boolean razoring) {
+		this.razoring = razoring;
+		for (Search helper : helpers) {
+			helper.razoring = razoring;
+		}
+	}
+
+	public void setExtensions(boolean extensions) {
+		this.extensions = extensions;
+		for (Search helper : helpers) {
+			helper.extensions = extensions;
+		}
+	}
+
+	public void clearHash() {
+		hashtable.clear();
+	}
 
 	// This is the method that is accessed from the main controller class, and
 	// returns what the program deems to be the best available move to a
 	// particular colour. $\label{code:rootNegamax}$
 	public Move rootNegamax(Game board, int color) {
-		long overallStartTime = System.currentTimeMillis();
-		double maxScore = Double.NEGATIVE_INFINITY;
-		double minScore = Double.POSITIVE_INFINITY;
-		Move optimal = null;
-		// Find all the possible moves
-		List<Move> moves = MoveGen.generateMoves(board, true);
-		int noOfMoves = moves.size();
-		// Calculates a rough estimate of how much time to spend evaluating each
-		// move
-		double timePerMove = EvalConstants.THINKING_TIME / noOfMoves;
-		for (Move move : moves) {
-			// Make the move then judge the resulting board
-			long startTime = System.currentTimeMillis();
-			double firstGuess = 0;
-			// If there is more time, keep increasing the depth of the search
-			// (i.e. the number of moves looked ahead)
-			for (int depth = 0; depth <= EvalConstants.MAX_DEPTH; depth++) {
-				// Use the mtdf algorithm to generate an value for the board at
-				// a particular depth
-				board.move(move);
-				firstGuess = mtdf(board, firstGuess, depth, color);
-				board.undo();
-				// If too much time has been spent evaluating break from the
-				// loop
-				if (System.currentTimeMillis() - startTime >= timePerMove
-						&& depth >= EvalConstants.MIN_DEPTH) {
-					break;
-				}
+		return rootNegamax(board, color, (long) EvalConstants.THINKING_TIME,
+				(int) EvalConstants.MAX_DEPTH);
+	}
 
+	// Searches for up to thinkingTime ms, and no deeper than maxDepth
+	public Move rootNegamax(Game board, int color, long thinkingTime, int maxDepth) {
+		TimeManager timeManager = TimeManager.moveTime(thinkingTime);
+		timeManager.setDepthLimit(maxDepth);
+		return rootNegamax(board, color, timeManager);
+	}
+
+	// The helpers are started on their own copies of the board, then the main
+	// thread searches until the time manager stops it, and stops them. The
+	// move returned is always the main thread's
+	public Move rootNegamax(Game board, int color, TimeManager timeManager) {
+		synchronized (this) {
+			timeManager.start();
+			running = timeManager;
+		}
+		try {
+			return search(board, color, timeManager);
+		} finally {
+			synchronized (this) {
+				running = null;
 			}
-			// Return board to original state
-			// The highest scoring move is optimal for white
-			if (color == EvalConstants.WHITE) {
-				if (firstGuess > maxScore) {
-					maxScore = firstGuess;
-					optimal = move;
-				}
-				// Lowest scoring for move is optimal for black
+		}
+	}
+
+	private Move search(Game board, int color, TimeManager timeManager) {
+		this.timeManager = timeManager;
+		hashtable.newSearch();
+		prepare(board, color);
+		if (noOfRootMoves == 0) {
+			return null;
+		}
+		// A forced move needs no thought
+		if (noOfRootMoves == 1) {
+			return new Move(rootMoves[0]);
+		}
+		int maxDepth = timeManager.getDepthLimit();
+		stopHelpers = false;
+		Thread[] threads = new Thread[helpers.length];
+		for (int i = 0; i < helpers.length; i++) {
+			Search helper = helpers[i];
+			Game copy = new Game(board);
+			threads[i] = new Thread(() -> {
+				helper.prepare(copy, color);
+				helper.iterate(copy, color, maxDepth);
+			}, "search-helper-" + helper.id);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+		iterate(board, color, maxDepth);
+		stopHelpers = true;
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (printInfo) {
+			System.out.println("TIME TO MAKE MOVE: " + timeManager.getElapsed());
+		}
+		return new Move(rootMoves[0]);
+	}
+
+	// Stops the search running on another thread, which returns the best move
+	// found so far. Does nothing if no search is running
+	public synchronized void stop() {
+		if (running != null) {
+			running.stop();
+		}
+	}
+
+	public synchronized boolean isSearching() {
+		return running != null;
+	}
+
+	// Generates and orders the root moves, and resets the results of the last
+	// search
+	private void prepare(Game board, int color) {
+		nodes = 0;
+		cutoffs = 0;
+		firstMoveCutoffs = 0;
+		ageHistory(history);
+		stopped = false;
+		nullMoveMinPly = 0;
+		principalVariation = new int[0];
+		score = 0;
+		completedDepth = 0;
+		noOfRootMoves = MoveGen.generateMoves(board, rootMoves);
+		orderRootMoves(board, color);
+	}
+
+	// Iterative deepening, the whole position is searched one ply deeper at a
+	// time until the time runs out. Each iteration fills the transposition
+	// table and orders the root moves for the next, so searching every depth
+	// costs little more than searching the last
+	// See https://www.chessprogramming.org/Iterative_Deepening
+	private void iterate(Game board, int color, int maxDepth) {
+		for (currentDepth = 1; currentDepth <= maxDepth; currentDepth++) {
+			if (id > 0 && skipDepth(id, currentDepth)) {
+				continue;
+			}
+			int result = (strategy == SearchStrategy.MTDF)
+					? mtdf(board, currentDepth, color)
+					: aspiration(board, currentDepth, color);
+			// The best move stays first in the root moves, and is only replaced
+			// by a move which has been fully searched and scored higher, so an
+			// unfinished iteration still leaves a usable move
+			if (stopped) {
+				break;
+			}
+			score = result;
+			completedDepth = currentDepth;
+			principalVariation = new int[pvLength[0]];
+			System.arraycopy(pvTable[0], 0, principalVariation, 0, pvLength[0]);
+			sortRootMoves(1);
+			if (id == 0 && printInfo) {
+				System.out.println("DEPTH " + currentDepth + " SCORE " + score + " NODES "
+						+ getNodes() + " PV " + pvToString());
+			}
+			// No point searching deeper once a mate has been found, otherwise the
+			// time manager decides whether there is time for another iteration
+			if (id == 0 && (Math.abs(score) >= EvalConstants.MATE - EvalConstants.MAX_PLY
+					|| !timeManager.nextIteration(currentDepth, rootMoves[0], score))) {
+				break;
+			}
+		}
+	}
+
+	// Aspiration windows, the score is usually close to the score of the last
+	// iteration so the search starts with a narrow window around it. If the
+	// score falls outside, the window is widened on that side and the
+	// iteration repeated
+	// See https://www.chessprogramming.org/Aspiration_Windows
+	private int aspiration(Game board, int depth, int color) {
+		int delta = EvalConstants.ASPIRATION_WINDOW;
+		int alpha = -EvalConstants.INFINITY;
+		int beta = EvalConstants.INFINITY;
+		if (completedDepth >= EvalConstants.ASPIRATION_MIN_DEPTH - 1) {
+			alpha = Math.max(score - delta, -EvalConstants.INFINITY);
+			beta = Math.min(score + delta, EvalConstants.INFINITY);
+		}
+		while (true) {
+			int result = searchRoot(board, alpha, beta, depth, color);
+			if (stopped) {
+				return result;
+			}
+			if (result <= alpha) {
+				alpha = Math.max(alpha - delta, -EvalConstants.INFINITY);
+			} else if (result >= beta) {
+				beta = Math.min(beta + delta, EvalConstants.INFINITY);
 			} else {
-				if (firstGuess < minScore) {
-					minScore = firstGuess;
-					optimal = move;
-				}
+				return result;
 			}
+			delta *= 2;
 		}
-		System.out.println("TIME TO MAKE MOVE: " + (System.currentTimeMillis() - overallStartTime));
-		return optimal;
 	}
 
-	// Search algorithm used with negamax (minimax variant), supposed to be more
-	// efficient and produce the same result $\label{code:mtdf}$
-	private double mtdf(Game board, double firstGuess, int depth, int color) {
-		double g = firstGuess;
-		double upperBound = Double.POSITIVE_INFINITY;
-		double lowerBound = Double.NEGATIVE_INFINITY;
+	// MTD(f), each null window search of the root says whether the score is
+	// above or below the bound, and the bounds close in on it from the last
+	// iteration's score
+	private int mtdf(Game board, int depth, int color) {
+		int guess = score;
+		int lowerBound = -EvalConstants.INFINITY;
+		int upperBound = EvalConstants.INFINITY;
 		while (lowerBound < upperBound) {
-			double beta = Math.max(g, lowerBound + 1);
-			g = negamax(beta - 1, beta, board, depth, color);
-			if (g < beta) {
-				upperBound = g;
+			int beta = (guess == lowerBound) ? guess + 1 : guess;
+			guess = searchRoot(board, beta - 1, beta, depth, color);
+			if (stopped) {
+				return guess;
+			}
+			if (guess < beta) {
+				upperBound = guess;
+			} else {
+				lowerBound = guess;
+			}
+		}
+		// The last search may have failed low, leaving no line, the best move
+		// is still first in the root moves
+		if (pvLength[0] == 0) {
+			pvTable[0][0] = rootMoves[0];
+			pvLength[0] = 1;
+		}
+		return guess;
+	}
+
+	private static boolean skipDepth(int id, int depth) {
+		int i = (id - 1) % SKIP_SIZE.length;
+		return ((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0;
+	}
+
+	// Called every so many nodes, the main thread stops when the time manager
+	// says so. Helpers stop when the main thread does
+	private void checkTime() {
+		if (id > 0) {
+			stopped = main.stopHelpers;
+		} else if (timeManager != null && timeManager.shouldStop(getNodes())) {
+			stopped = true;
+		}
+	}
+
+	// Searches each root move in turn, a move which raises alpha is moved to
+	// the front
+	private int searchRoot(Game board, int alpha, int beta, int depth, int colorFactor) {
+		int bestValue = -EvalConstants.INFINITY;
+		pvLength[0] = 0;
+		int lastMove = board.getLastMove();
+		for (int i = 0; i < noOfRootMoves; i++) {
+			int move = rootMoves[i];
+			board.move(move);
+			// Root moves are extended as they would be anywhere else, with
+			// nothing carried from above
+			int extensionType = extensions
+					? extensionType(move, lastMove, board.check(board.toMove), false) : -1;
+			int extension = (extensionType >= 0) ? EXTENSION[extensionType] : 0;
+			extensionCarry[1] = extension % EvalConstants.ONE_PLY;
+			if (extensionType >= 0) {
+				extensionUsed[extensionType] += extension;
+			}
+			int newDepth = depth - 1 + extension / EvalConstants.ONE_PLY;
+			int v;
+			if (i == 0) {
+				v = -negamax(-beta, -alpha, board, newDepth, 1, -colorFactor);
 			} else {
-				lowerBound = g;
+				v = -negamax(-alpha - 1, -alpha, board, newDepth, 1, -colorFactor);
+				if (v > alpha && v < beta && !stopped) {
+					v = -negamax(-beta, -alpha, board, newDepth, 1, -colorFactor);
+				}
+			}
+			if (extensionType >= 0) {
+				extensionUsed[extensionType] -= extension;
+			}
+			board.undo();
+			if (stopped) {
+				break;
+			}
+			rootScores[i] = v;
+			bestValue = Math.max(bestValue, v);
+			if (v > alpha) {
+				alpha = v;
+				updatePv(0, move);
+				System.arraycopy(rootMoves, 0, rootMoves, 1, i);
+				System.arraycopy(rootScores, 0, rootScores, 1, i);
+				rootMoves[0] = move;
+				rootScores[0] = v;
+				if (v >= beta) {
+					break;
+				}
 			}
 		}
-		return g;
+		return bestValue;
+	}
+
+	// Before the first iteration the root moves are ordered by material, as the
+	// move picker would
+	private void orderRootMoves(Game board, int colorFactor) {
+		for (int i = 0; i < noOfRootMoves; i++) {
+			board.move(rootMoves[i]);
+			rootScores[i] = (int) Evaluation.fastEval(board, colorFactor);
+			board.undo();
+		}
+		sortRootMoves(0);
+	}
+
+	// Insertion sort of the root moves from start onwards by score, highest
+	// first. There are few root moves, and it keeps moves with equal scores in
+	// their previous order
+	private void sortRootMoves(int start) {
+		for (int i = start + 1; i < noOfRootMoves; i++) {
+			int move = rootMoves[i];
+			int moveScore = rootScores[i];
+			int j = i - 1;
+			while (j >= start && rootScores[j] < moveScore) {
+				rootMoves[j + 1] = rootMoves[j];
+				rootScores[j + 1] = rootScores[j];
+				j--;
+			}
+			rootMoves[j + 1] = move;
+			rootScores[j + 1] = moveScore;
+		}
 	}
 
 	// Color Factor: 1 for white, -1 for black $\label{code:negamax}$
-	private double negamax(double alpha, double beta, Game board, int depth, int colorFactor) {
-		double alphaOrig = alpha;
+	// Scores are from the point of view of the side to move
+	// Ply is the distance from the root and selects the move buffer to use
+	private int negamax(int alpha, int beta, Game board, int depth, int ply, int colorFactor) {
+		// At the horizon only captures and promotions are searched, so that the
+		// position is quiet when it is evaluated
+		if (depth <= 0) {
+			return quiesce(alpha, beta, board, ply, colorFactor);
+		}
+		pvLength[ply] = ply;
+		if ((++nodes & EvalConstants.NODES_BETWEEN_TIME_CHECKS) == 0) {
+			checkTime();
+		}
+		if (stopped) {
+			return 0;
+		}
+		int alphaOrig = alpha;
 		// Check if any of the values have already been computed, if so, return
 		// them from the hash table
-		TranspositionEntry tEntry = new TranspositionEntry();
-		tEntry = hashtable.get(board.hash());
-		if (tEntry != null) {
-			if (tEntry.getDepth() >= depth) {
-				if (tEntry.getFlag() == TranspositionFlag.EXACT) {
-					return tEntry.getScore();
-				} else if (tEntry.getFlag() == TranspositionFlag.LOWERBOUND) {
-					alpha = Math.max(alpha, tEntry.getScore());
-				} else if (tEntry.getFlag() == TranspositionFlag.UPPERBOUND) {
-					beta = Math.min(beta, tEntry.getScore());
+		long tEntry = hashtable.probe(board.getKey());
+		int ttMove = MoveEncoding.NO_MOVE;
+		if (tEntry != 0) {
+			// Even if the entry is too shallow to use its score, its best move
+			// is likely to be best again so is searched first
+			ttMove = TranspositionTable.getMove(tEntry);
+			if (TranspositionTable.getDepth(tEntry) >= depth) {
+				int score = scoreFromTable(TranspositionTable.getScore(tEntry), ply);
+				int bound = TranspositionTable.getBound(tEntry);
+				if (bound == TranspositionTable.EXACT) {
+					return score;
+				} else if (bound == TranspositionTable.LOWERBOUND) {
+					alpha = Math.max(alpha, score);
+				} else if (bound == TranspositionTable.UPPERBOUND) {
+					beta = Math.min(beta, score);
+				}
+				if (alpha >= beta) {
+					return score;
 				}
 			}
 		}
 		// Return the value of the leaf node
-		if (depth == 0) {
-			return colorFactor * Evaluation.evaluate(board, colorFactor);
-		}
-		double bestValue = Double.NEGATIVE_INFINITY;
-		// Pseudo-legal moves are generated to speed up the algorithm
-		// By sorting them by evaluation value, cutoffs are more likely to occur
-		List<Move> moves = mergeSort(board, MoveGen.generateMoves(board, false), colorFactor);
-		//List<Move> moves = MoveGen.generateMoves(board, false);
+		if (ply >= EvalConstants.MAX_PLY - 1) {
+			return (int) Evaluation.evaluate(board, colorFactor);
+		}
+		int lastMove = board.getLastMove();
+		// The pruning below relies on the static evaluation, which means
+		// nothing in check
+		boolean inCheck = board.check(board.toMove);
+		int staticEval = inCheck ? -EvalConstants.INFINITY
+				: (int) Evaluation.evaluate(board, colorFactor);
+		// Reverse futility pruning, near the leaves a position so far above
+		// beta that no move is likely to bring it back down fails high
+		// straight away
+		// See https://www.chessprogramming.org/Reverse_Futility_Pruning
+		if (reverseFutilityPruning && !inCheck
+				&& depth <= EvalConstants.REVERSE_FUTILITY_DEPTH
+				&& beta < EvalConstants.MATE - EvalConstants.MAX_PLY
+				&& staticEval - EvalConstants.REVERSE_FUTILITY_MARGIN * depth >= beta) {
+			return staticEval;
+		}
+		// Razoring, a position far below alpha near the leaves is only
+		// searched for captures, if they can't bring it up to alpha either it
+		// fails low
+		// See https://www.chessprogramming.org/Razoring
+		if (razoring && !inCheck && depth <= EvalConstants.RAZOR_DEPTH
+				&& alpha > -EvalConstants.MATE + EvalConstants.MAX_PLY
+				&& staticEval + EvalConstants.RAZOR_MARGIN * depth <= alpha) {
+			int v = quiesce(alpha, alpha + 1, board, ply, colorFactor);
+			if (stopped) {
+				return 0;
+			}
+			if (v <= alpha) {
+				return v;
+			}
+			pvLength[ply] = ply;
+		}
+		// Null move pruning, if the side to move could pass and a reduced
+		// search still fails high then a real move almost certainly would
+		// too. Two null moves in a row would prove nothing, and in check
+		// passing isn't legal. With only pawns left the side to move may be in
+		// zugzwang, where passing would be better than any move
+		// See https://www.chessprogramming.org/Null_Move_Pruning
+		if (!inCheck && depth >= EvalConstants.NULL_MOVE_MIN_DEPTH && ply >= nullMoveMinPly
+				&& lastMove != MoveEncoding.NO_MOVE
+				&& beta < EvalConstants.MATE - EvalConstants.MAX_PLY
+				&& hasPieces(board, board.toMove) && staticEval >= beta) {
+			// Adaptive null move pruning, deeper searches are reduced more
+			// See https://www.chessprogramming.org/Adaptive_Null_Move_Pruning
+			int reduction = (depth > 6) ? 3 : 2;
+			board.makeNullMove();
+			extensionCarry[ply + 1] = extensionCarry[ply];
+			int v = -negamax(-beta, -beta + 1, board, depth - 1 - reduction, ply + 1,
+					-colorFactor);
+			board.undoNullMove();
+			if (stopped) {
+				return 0;
+			}
+			if (v >= beta) {
+				// A mate found after passing isn't a real mate
+				if (v >= EvalConstants.MATE - EvalConstants.MAX_PLY) {
+					v = beta;
+				}
+				if (depth < EvalConstants.NULL_MOVE_VERIFY_DEPTH || nullMoveMinPly > 0) {
+					return v;
+				}
+				// Deep in the tree a wrong cutoff costs more, so it is checked
+				// with a reduced search of this position without null moves
+				// near the top, which would find a zugzwang
+				nullMoveMinPly = ply + 3 * (depth - reduction) / 4;
+				int verified = negamax(beta - 1, beta, board, depth - reduction, ply, colorFactor);
+				nullMoveMinPly = 0;
+				pvLength[ply] = ply;
+				if (stopped) {
+					return 0;
+				}
+				if (verified >= beta) {
+					return v;
+				}
+			}
+		}
+		int bestValue = -EvalConstants.INFINITY;
+		int bestMove = MoveEncoding.NO_MOVE;
+		// Moves are generated in stages by the picker, see MovePicker
+		MovePicker picker = pickers[ply];
+		int counterMove = (lastMove == MoveEncoding.NO_MOVE) ? MoveEncoding.NO_MOVE
+				: counterMoves[MoveEncoding.getPiece(lastMove)][MoveEncoding.getTo(lastMove)];
+		picker.init(board, ttMove, killers[ply][0], killers[ply][1], counterMove);
+		int movesSearched = 0;
+		int noOfQuiets = 0;
+		// A move which is the only way out of check is forced
+		boolean singleReply = extensions && inCheck && picker.countEvasions() == 1;
+		// Futility pruning, at depth 1 or 2 a quiet move is unlikely to gain
+		// enough to raise a position this far below alpha
+		// See https://www.chessprogramming.org/Futility_Pruning
+		boolean futile = futilityPruning && !inCheck
+				&& depth < EvalConstants.FUTILITY_MARGIN.length
+				&& alpha > -EvalConstants.MATE + EvalConstants.MAX_PLY
+				&& staticEval + EvalConstants.FUTILITY_MARGIN[depth] <= alpha;
 		// Analyses each move
-		for (Move move : moves) {
+		int move;
+		while ((move = picker.next()) != MoveEncoding.NO_MOVE) {
+			// Near the leaves a capture which loses material is very unlikely
+			// to be best, once another move has been searched
+			if (depth <= EvalConstants.SEE_PRUNING_DEPTH && bestMove != MoveEncoding.NO_MOVE
+					&& !inCheck && picker.isLosingCapture()) {
+				continue;
+			}
+			boolean quiet = !MoveEncoding.isCapture(move) && !MoveEncoding.isPromotion(move);
 			board.move(move);
-			double v = -negamax(-beta, -alpha, board, depth - 1, -1 * colorFactor);
+			// Moves which are forcing or were good elsewhere are never reduced
+			// or pruned
+			boolean givesCheck = board.check(board.toMove);
+			int extensionType = extensions
+					? extensionType(move, lastMove, givesCheck, singleReply) : -1;
+			if (futile && quiet && !givesCheck && extensionType < 0
+					&& bestMove != MoveEncoding.NO_MOVE) {
+				board.undo();
+				continue;
+			}
+			boolean lateQuiet = quiet && !inCheck && move != ttMove && move != killers[ply][0]
+					&& move != killers[ply][1] && !givesCheck && extensionType < 0;
+			// Move count pruning, near the leaves the late quiet moves at a
+			// node which hasn't failed high yet are unlikely to, once a move
+			// which doesn't get mated has been found
+			if (lateQuiet && depth <= EvalConstants.MOVE_COUNT_PRUNING_DEPTH
+					&& movesSearched >= 3 + depth * depth
+					&& bestValue > -EvalConstants.MATE + EvalConstants.MAX_PLY) {
+				board.undo();
+				continue;
+			}
+			// The fractions of a ply carried down from above and this move's
+			// extension make up the extra depth
+			int extension = (extensionType >= 0) ? EXTENSION[extensionType] : 0;
+			int extendedPlies = (extensionCarry[ply] + extension) / EvalConstants.ONE_PLY;
+			extensionCarry[ply + 1] = (extensionCarry[ply] + extension) % EvalConstants.ONE_PLY;
+			if (extensionType >= 0) {
+				extensionUsed[extensionType] += extension;
+			}
+			int newDepth = depth - 1 + extendedPlies;
+			int v;
+			// Late move reductions, moves ordered late are searched to a lower
+			// depth with a null window around alpha, only if one beats alpha is
+			// it searched again properly
+			int reduction = 0;
+			if (lateQuiet && depth >= EvalConstants.LMR_MIN_DEPTH
+					&& movesSearched >= EvalConstants.LMR_MIN_MOVES) {
+				reduction = Math.min(reduction(depth, movesSearched), depth - 2);
+			}
+			if (movesSearched == 0) {
+				v = -negamax(-beta, -alpha, board, newDepth, ply + 1, -1 * colorFactor);
+			} else {
+				// Principal variation search, later moves only have to be shown
+				// to be no better than alpha, which a null window does more
+				// cheaply
+				v = -negamax(-alpha - 1, -alpha, board, newDepth - reduction, ply + 1,
+						-colorFactor);
+				if (v > alpha && reduction > 0 && !stopped) {
+					v = -negamax(-alpha - 1, -alpha, board, newDepth, ply + 1, -colorFactor);
+				}
+				if (v > alpha && v < beta && !stopped) {
+					v = -negamax(-beta, -alpha, board, newDepth, ply + 1, -colorFactor);
+				}
+			}
+			if (extensionType >= 0) {
+				extensionUsed[extensionType] -= extension;
+			}
 			board.undo();
-			bestValue = Math.max(bestValue, v);
-			alpha = Math.max(alpha, v);
+			if (stopped) {
+				return 0;
+			}
+			movesSearched++;
+			if (v > bestValue) {
+				bestValue = v;
+				bestMove = move;
+			}
+			if (v > alpha) {
+				alpha = v;
+				updatePv(ply, move);
+			}
 			if (alpha >= beta) {
+				cutoffs++;
+				if (movesSearched == 1) {
+					firstMoveCutoffs++;
+				}
+				if (quiet) {
+					storeKiller(ply, move);
+					updateHistory(history, move, quietsSearched[ply], noOfQuiets, depth);
+					if (lastMove != MoveEncoding.NO_MOVE) {
+						counterMoves[MoveEncoding.getPiece(lastMove)][MoveEncoding
+								.getTo(lastMove)] = move;
+					}
+				}
 				break;
 			}
+			if (quiet) {
+				quietsSearched[ply][noOfQuiets++] = move;
+			}
+		}
+		// With no legal moves the game is over, checkmate is scored by its
+		// distance from the root so that the quickest mate is preferred
+		if (bestMove == MoveEncoding.NO_MOVE) {
+			return inCheck ? -EvalConstants.MATE + ply : 0;
 		}
 		// Add values to the hash table to save them from being recomputed
-		TranspositionEntry tEntryFinal = new TranspositionEntry();
-		tEntryFinal.setScore(bestValue);
+		int bound;
 		if (bestValue <= alphaOrig) {
-			tEntryFinal.setFlag(TranspositionFlag.UPPERBOUND);
+			bound = TranspositionTable.UPPERBOUND;
 		} else if (bestValue >= beta) {
-			tEntryFinal.setFlag(TranspositionFlag.LOWERBOUND);
+			bound = TranspositionTable.LOWERBOUND;
 		} else {
-			tEntryFinal.setFlag(TranspositionFlag.EXACT);
+			bound = TranspositionTable.EXACT;
 		}
-		tEntryFinal.setDepth(depth);
-		hashtable.put(board.hash(), tEntryFinal);
+		// When every move failed low none of them is known to be best
+		hashtable.store(board.getKey(), scoreToTable(bestValue, ply), depth, bound,
+				(bound == TranspositionTable.UPPERBOUND) ? MoveEncoding.NO_MOVE : bestMove);
 
 		return bestValue;
 	}
 
-	// Merge sort algorithm to order the moves available by the evaluation value
-	// of the resulting board $\label{code:mergesort}$
-	public List<Move> mergeSort(Game board, List<Move> moves, int colorFactor) {
-		int size = moves.size();
-		if (size <= 1) {
-			return moves;
-		}
-		// Find the middle of the list
-		int middleIndex = size / 2;
-		// Split the list into left and right $\label{code:sublist}$
-		List<Move> leftList = moves.subList(0, middleIndex);
-		List<Move> rightList = moves.subList(middleIndex, size);
-		// Recursively apply the sort to left and right list
-		rightList = mergeSort(board, rightList, colorFactor);
-		leftList = mergeSort(board, leftList, colorFactor);
-		// Merge the two lists
-		List<Move> result = merge(board, leftList, rightList, colorFactor);
-		return result;
-	}
-
-	// Algorithm to merge two lists together into a single list
-	public List<Move> merge(Game board, List<Move> left, List<Move> right, int colorFactor) {
-		List<Move> result = new LinkedList<>();
-		// Generate iterators for each half of the list
-		Iterator<Move> leftIter = left.iterator();
-		Iterator<Move> rightIter = right.iterator();
-		// Work out eval values for the first item in each list
-		// Note: move must be undone to return the board to its original state
-		Move leftMove = leftIter.next();
-		board.move(leftMove);
-		double leftEval = Evaluation.fastEval(board, colorFactor);
-		board.undo();
-		Move rightMove = rightIter.next();
-		board.move(rightMove);
-		double rightEval = Evaluation.fastEval(board, colorFactor);
-		board.undo();
-		// The while loops is broken as and when is appropriate
-		while (true) {
-			// White player is maximiser, so board values should be sorted in
-			// ascending order
-			if (colorFactor == 1) {
-				if (leftEval <= rightEval) {
-					// Add the move to the resulting list, sort
-					result.add(leftMove);
-					if (leftIter.hasNext()) {
-						// Update evaluation values
-						leftMove = leftIter.next();
-						board.move(leftMove);
-						leftEval = Evaluation.fastEval(board, colorFactor);
-						board.undo();
-					} else {
-						// If the left list is empty, add the rest of the right
-						// list
-						result.add(rightMove);
-						while (rightIter.hasNext()) {
-							result.add(rightIter.next());
-						}
-						break;
-					}
-				} else {
-					// Add the smaller of the two to the list
-					result.add(rightMove);
-					if (rightIter.hasNext()) {
-						rightMove = rightIter.next();
-						board.move(rightMove);
-						rightEval = Evaluation.fastEval(board, colorFactor);
-						board.undo();
-					} else {
-						result.add(leftMove);
-						while (leftIter.hasNext()) {
-							result.add(leftIter.next());
-						}
-						break;
-					}
-				}
-			} else {
-				// Black player is minimiser, so board values should be sorted
-				// in descending order to maximise cutoffs
-				// Equivalent to the code above, the initial condition is merely
-				// reversed
-				if (leftEval >= rightEval) {
-					result.add(leftMove);
-					if (leftIter.hasNext()) {
-						leftMove = leftIter.next();
-						board.move(leftMove);
-						leftEval = Evaluation.fastEval(board, colorFactor);
-						board.undo();
-					} else {
-						result.add(rightMove);
-						while (rightIter.hasNext()) {
-							result.add(rightIter.next());
-						}
-						break;
-					}
-				} else {
-					result.add(rightMove);
-					if (rightIter.hasNext()) {
-						rightMove = rightIter.next();
-						board.move(rightMove);
-						rightEval = Evaluation.fastEval(board, colorFactor);
-						board.undo();
-					} else {
-						result.add(leftMove);
-						while (leftIter.hasNext()) {
-							result.add(leftIter.next());
-						}
-						break;
-					}
-				}
+	// Quiescence search, captures and promotions are searched until none are
+	// left, so a piece left hanging at the horizon is not missed. The side to
+	// move can 'stand pat' on the static evaluation instead of capturing
+	// See https://www.chessprogramming.org/Quiescence_Search
+	int quiesce(int alpha, int beta, Game board, int ply, int colorFactor) {
+		pvLength[ply] = ply;
+		if ((++nodes & EvalConstants.NODES_BETWEEN_TIME_CHECKS) == 0) {
+			checkTime();
+		}
+		if (stopped) {
+			return 0;
+		}
+		int alphaOrig = alpha;
+		// Every entry is at least as deep as the quiescence search
+		long tEntry = (hashtable == null) ? 0 : hashtable.probe(board.getKey());
+		int ttMove = MoveEncoding.NO_MOVE;
+		if (tEntry != 0) {
+			ttMove = TranspositionTable.getMove(tEntry);
+			int score = scoreFromTable(TranspositionTable.getScore(tEntry), ply);
+			int bound = TranspositionTable.getBound(tEntry);
+			if (bound == TranspositionTable.EXACT
+					|| (bound == TranspositionTable.LOWERBOUND && score >= beta)
+					|| (bound == TranspositionTable.UPPERBOUND && score <= alpha)) {
+				return score;
+			}
+		}
+		if (ply >= EvalConstants.MAX_PLY - 1) {
+			return (int) Evaluation.evaluate(board, colorFactor);
+		}
+		MovePicker picker = pickers[ply];
+		picker.initQuiescence(board, ttMove);
+		// In check there is no standing pat, every evasion is searched
+		boolean inCheck = picker.isInCheck();
+		int standPat = 0;
+		int bestValue = -EvalConstants.INFINITY;
+		if (!inCheck) {
+			standPat = (int) Evaluation.evaluate(board, colorFactor);
+			if (standPat >= beta) {
+				return standPat;
+			}
+			// Delta pruning, if even winning a queen can't bring the score up
+			// to alpha there is no point searching any capture
+			if (standPat + EvalConstants.PIECE_VALUES[CoreConstants.WHITE_QUEEN]
+					+ EvalConstants.DELTA_MARGIN <= alpha) {
+				return standPat;
 			}
+			bestValue = standPat;
+			alpha = Math.max(alpha, standPat);
 		}
-		return result;
+		int bestMove = MoveEncoding.NO_MOVE;
+		int move;
+		while ((move = picker.next()) != MoveEncoding.NO_MOVE) {
+			// Delta pruning for each capture, promotions are always searched
+			if (!inCheck && !MoveEncoding.isPromotion(move)
+					&& standPat + EvalConstants.PIECE_VALUES[MoveEncoding.getCaptured(move)]
+							+ EvalConstants.DELTA_MARGIN <= alpha) {
+				continue;
+			}
+			board.move(move);
+			int v = -quiesce(-beta, -alpha, board, ply + 1, -colorFactor);
+			board.undo();
+			if (stopped) {
+				return 0;
+			}
+			if (v > bestValue) {
+				bestValue = v;
+				bestMove = move;
+			}
+			if (v > alpha) {
+				alpha = v;
+				updatePv(ply, move);
+			}
+			if (alpha >= beta) {
+				break;
+			}
+		}
+		if (inCheck && bestMove == MoveEncoding.NO_MOVE) {
+			return -EvalConstants.MATE + ply;
+		}
+		int bound;
+		if (bestValue <= alphaOrig) {
+			bound = TranspositionTable.UPPERBOUND;
+		} else if (bestValue >= beta) {
+			bound = TranspositionTable.LOWERBOUND;
+		} else {
+			bound = TranspositionTable.EXACT;
+		}
+		if (hashtable != null) {
+			hashtable.store(board.getKey(), scoreToTable(bestValue, ply), 0, bound, bestMove);
+		}
+		return bestValue;
+	}
+
+	// Which extension the move just made earns, or -1 if none does. A move
+	// earning more than one kind gets the largest whose limit on this line
+	// hasn't been reached
+	private int extensionType(int move, int lastMove, boolean givesCheck,
+			boolean singleReply) {
+		int type = -1;
+		if (givesCheck) {
+			type = largerExtension(type, CHECK);
+		}
+		if (singleReply) {
+			type = largerExtension(type, SINGLE_REPLY);
+		}
+		if (isPawnPush(move)) {
+			type = largerExtension(type, PAWN_PUSH);
+		}
+		if (MoveEncoding.isCapture(move) && lastMove != MoveEncoding.NO_MOVE
+				&& MoveEncoding.isCapture(lastMove)
+				&& MoveEncoding.getTo(move) == MoveEncoding.getTo(lastMove)) {
+			type = largerExtension(type, RECAPTURE);
+		}
+		return type;
+	}
+
+	// The better of two extensions, a kind which has used up its limit is
+	// never chosen
+	private int largerExtension(int best, int type) {
+		if (extensionUsed[type] + EXTENSION[type] > EXTENSION_LIMIT[type]) {
+			return best;
+		}
+		return (best < 0 || EXTENSION[type] > EXTENSION[best]) ? type : best;
+	}
+
+	// A pawn moving to the 7th rank, about to promote
+	private static boolean isPawnPush(int move) {
+		int piece = MoveEncoding.getPiece(move);
+		int rank = MoveEncoding.getTo(move) >> 3;
+		return (piece == CoreConstants.WHITE_PAWN && rank == 6)
+				|| (piece == CoreConstants.BLACK_PAWN && rank == 1);
+	}
+
+	static int reduction(int depth, int movesSearched) {
+		return REDUCTIONS[Math.min(depth, EvalConstants.MAX_PLY - 1)][Math
+				.min(movesSearched, CoreConstants.MAX_MOVES_PER_POSITION - 1)];
 	}
 
-	// Indicates the nature of the value stored in the hash table
-	private enum TranspositionFlag {
-		EXACT, LOWERBOUND, UPPERBOUND
+	// True if side has a piece other than pawns and the king
+	private static boolean hasPieces(Game board, int side) {
+		long[] bitboards = board.getBitBoards();
+		return (bitboards[CoreConstants.WHITE_KNIGHT + side]
+				| bitboards[CoreConstants.WHITE_BISHOP + side]
+				| bitboards[CoreConstants.WHITE_ROOK + side]
+				| bitboards[CoreConstants.WHITE_QUEEN + side]) != 0;
 	}
 
-	// User-defined type to store calculated values in the hash table
-	private class TranspositionEntry {
-		private double score;
-		private TranspositionFlag flag;
-		private int depth;
+	// The principal variation from a ply is its best move followed by the
+	// principal variation from the next ply
+	private void updatePv(int ply, int move) {
+		pvTable[ply][ply] = move;
+		int length = Math.max(pvLength[ply + 1], ply + 1);
+		System.arraycopy(pvTable[ply + 1], ply + 1, pvTable[ply], ply + 1, length - (ply + 1));
+		pvLength[ply] = length;
+	}
 
-		public double getScore() {
-			return score;
+	// Mate scores are stored as the distance from the position rather than from
+	// the root, so they are still right when the position is reached at a
+	// different ply
+	static int scoreToTable(int score, int ply) {
+		if (score >= EvalConstants.MATE - EvalConstants.MAX_PLY) {
+			return score + ply;
+		} else if (score <= -EvalConstants.MATE + EvalConstants.MAX_PLY) {
+			return score - ply;
 		}
+		return score;
+	}
 
-		public void setScore(double score) {
-			this.score = score;
+	static int scoreFromTable(int score, int ply) {
+		if (score >= EvalConstants.MATE - EvalConstants.MAX_PLY) {
+			return score - ply;
+		} else if (score <= -EvalConstants.MATE + EvalConstants.MAX_PLY) {
+			return score + ply;
 		}
+		return score;
+	}
 
-		public TranspositionFlag getFlag() {
-			return flag;
+	// Rewards the quiet move which caused a cutoff and penalises the quiet
+	// moves searched before it, deeper cutoffs count for more. Scores are kept
+	// within HISTORY_MAX by moving them towards zero as they grow
+	static void updateHistory(int[][] history, int move, int[] quiets, int noOfQuiets,
+			int depth) {
+		int bonus = Math.min(depth * depth, EvalConstants.HISTORY_MAX);
+		addHistory(history, move, bonus);
+		for (int i = 0; i < noOfQuiets; i++) {
+			addHistory(history, quiets[i], -bonus);
 		}
+	}
 
-		public void setFlag(TranspositionFlag flag) {
-			this.flag = flag;
+	// Older history counts for less than this search's
+	static void ageHistory(int[][] history) {
+		for (int[] pieceHistory : history) {
+			for (int to = 0; to < 64; to++) {
+				pieceHistory[to] /= 2;
+			}
 		}
+	}
+
+	private static void addHistory(int[][] history, int move, int bonus) {
+		int[] pieceHistory = history[MoveEncoding.getPiece(move)];
+		int to = MoveEncoding.getTo(move);
+		pieceHistory[to] += bonus - pieceHistory[to] * Math.abs(bonus) / EvalConstants.HISTORY_MAX;
+	}
 
-		public int getDepth() {
-			return depth;
+	// Keeps the two most recent killers at a ply, without duplicates
+	private void storeKiller(int ply, int move) {
+		if (killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
 		}
+	}
+
+	// Best line found by the last completed iteration
+	public int[] getPrincipalVariation() {
+		return principalVariation.clone();
+	}
+
+	// Score of the last completed iteration, from the point of view of the
+	// side to move
+	public int getScore() {
+		return score;
+	}
+
+	public int getCompletedDepth() {
+		return completedDepth;
+	}
+
+	// Cutoffs in the main thread, and how many came from the first move
+	// searched
+	public long getCutoffs() {
+		return cutoffs;
+	}
+
+	public long getFirstMoveCutoffs() {
+		return firstMoveCutoffs;
+	}
+
+	void resetNodes() {
+		nodes = 0;
+	}
+
+	// Nodes searched by every thread, only exact once the search has finished
+	public long getNodes() {
+		long total = nodes;
+		for (Search helper : helpers) {
+			total += helper.nodes;
+		}
+		return total;
+	}
 
-		public void setDepth(int depth) {
-			this.depth = depth;
+	private String pvToString() {
+		StringBuilder result = new StringBuilder();
+		for (int move : principalVariation) {
+			result.append(MoveEncoding.toString(move)).append(' ');
 		}
+		return result.toString().trim();
 	}
 }
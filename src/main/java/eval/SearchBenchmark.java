@@ -0,0 +1,153 @@
+package eval;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import core.CoreConstants;
+import core.Game;
+import core.MoveGen;
+
+public class SearchBenchmark {
+	// Measures the time taken to search a fixed set of positions to a fixed
+	// depth with different numbers of threads, the speedup is the time with
+	// one thread over the time with more. Lazy SMP (Search) is measured by
+	// default, --ybwc measures ParallelSearch instead. --pruning counts the
+	// nodes searched with one thread with each of the pruning methods near the
+	// leaves turned off in turn, a change which makes them prune less shows
+	// up as more nodes. --strategies compares the time and nodes taken to reach
+	// the depth with each SearchStrategy, with one thread
+	// java -cp target/classes eval.SearchBenchmark [depth] [--ybwc | --pruning | --strategies]
+	// [threads...]
+	private static final String[] POSITIONS = {
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq -",
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w -",
+			"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq -",
+			"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ -",
+			"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w -",
+			"r1bq1rk1/pp2bppp/2n2n2/2pp4/3P4/2PBPN2/PP1N1PPP/R2QK2R w KQ -",
+			"2r3k1/pp3ppp/2n1b3/3p4/3P4/2PB1N2/P4PPP/4R1K1 b -" };
+
+	public static void main(String[] args) {
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 6;
+		boolean ybwc = false;
+		List<Integer> threadCounts = new ArrayList<>();
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("--ybwc")) {
+				ybwc = true;
+			} else if (args[i].equals("--pruning")) {
+				MoveGen.initialise();
+				runPruning(depth);
+				return;
+			} else if (args[i].equals("--strategies")) {
+				MoveGen.initialise();
+				runStrategies(depth);
+				return;
+			} else {
+				threadCounts.add(Integer.parseInt(args[i]));
+			}
+		}
+		if (threadCounts.isEmpty()) {
+			threadCounts.add(1);
+			threadCounts.add(2);
+			threadCounts.add(4);
+			threadCounts.add(Runtime.getRuntime().availableProcessors());
+		}
+		MoveGen.initialise();
+		// The first run only warms up the JIT, so it doesn't count against
+		// the single threaded time
+		run(ybwc, 1, depth);
+		long baseTime = 0;
+		for (int threads : threadCounts) {
+			long startTime = System.currentTimeMillis();
+			long nodes = run(ybwc, threads, depth);
+			long time = Math.max(1, System.currentTimeMillis() - startTime);
+			if (baseTime == 0) {
+				baseTime = time;
+			}
+			System.out.printf("Threads: %d Time: %dms Nodes: %d NPS: %d Speedup: %.2f%n", threads,
+					time, nodes, nodes * 1000 / time, (double) baseTime / time);
+		}
+	}
+
+	// Nodes searched with every pruning method on, then with each turned off
+	private static void runPruning(int depth) {
+		String[] names = { "All pruning", "No futility pruning", "No reverse futility pruning",
+				"No razoring", "No pruning" };
+		for (int i = 0; i < names.length; i++) {
+			Search search = new Search(EvalConstants.HASH_SIZE_MB, 1);
+			search.setFutilityPruning(i != 1 && i != 4);
+			search.setReverseFutilityPruning(i != 2 && i != 4);
+			search.setRazoring(i != 3 && i != 4);
+			long startTime = System.currentTimeMillis();
+			long nodes = runSuite(search::clearHash, board -> {
+				search.rootNegamax(board, colorToMove(board), Long.MAX_VALUE / 2, depth);
+				return search.getNodes();
+			});
+			System.out.printf("%s: Time: %dms Nodes: %d%n", names[i],
+					System.currentTimeMillis() - startTime, nodes);
+		}
+	}
+
+	// Time and nodes to reach the depth with each strategy, after a warm-up
+	// search with each
+	private static void runStrategies(int depth) {
+		for (int pass = 0; pass < 2; pass++) {
+			for (SearchStrategy strategy : SearchStrategy.values()) {
+				Search search = new Search(EvalConstants.HASH_SIZE_MB, 1);
+				search.setStrategy(strategy);
+				long startTime = System.currentTimeMillis();
+				long nodes = runSuite(search::clearHash, board -> {
+					search.rootNegamax(board, colorToMove(board), Long.MAX_VALUE / 2, depth);
+					return search.getNodes();
+				});
+				if (pass == 1) {
+					System.out.printf("%s: Time: %dms Nodes: %d%n", strategy,
+							System.currentTimeMillis() - startTime, nodes);
+				}
+			}
+		}
+	}
+
+	// Returns the number of nodes searched
+	private static long run(boolean ybwc, int threads, int depth) {
+		if (ybwc) {
+			try (ParallelSearch search = new ParallelSearch(EvalConstants.HASH_SIZE_MB, threads)) {
+				return runSuite(search::clearHash, board -> {
+					search.rootNegamax(board, colorToMove(board), Long.MAX_VALUE / 2, depth);
+					return search.getNodes();
+				});
+			}
+		}
+		Search search = new Search(EvalConstants.HASH_SIZE_MB, threads);
+		long[] cutoffs = new long[2];
+		long nodes = runSuite(search::clearHash, board -> {
+			search.rootNegamax(board, colorToMove(board), Long.MAX_VALUE / 2, depth);
+			cutoffs[0] += search.getCutoffs();
+			cutoffs[1] += search.getFirstMoveCutoffs();
+			return search.getNodes();
+		});
+		// How good the move ordering is
+		System.out.printf("Cutoffs on the first move: %.1f%%%n",
+				100.0 * cutoffs[1] / Math.max(1, cutoffs[0]));
+		return nodes;
+	}
+
+	private static long runSuite(Runnable clearHash, ToLongFunction<Game> search) {
+		long nodes = 0;
+		for (String fen : POSITIONS) {
+			// Each position starts from an empty table so earlier positions
+			// don't help
+			clearHash.run();
+			Game board = new Game();
+			board.loadFen(fen);
+			nodes += search.applyAsLong(board);
+		}
+		return nodes;
+	}
+
+	private static int colorToMove(Game board) {
+		return (board.toMove == CoreConstants.WHITE) ? EvalConstants.WHITE : EvalConstants.BLACK;
+	}
+}
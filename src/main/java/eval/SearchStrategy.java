@@ -0,0 +1,19 @@
+package eval;
+
+public enum SearchStrategy {
+	// How each iteration of the iterative deepening finds the score of the
+	// root position, chosen with Search.setStrategy
+
+	// Principal variation search inside an aspiration window around the last
+	// score. The first move at each node is searched with the full window and
+	// the rest with a null window, which only proves them worse, only a move
+	// which turns out better is searched again
+	// See https://www.chessprogramming.org/Principal_Variation_Search
+	PVS,
+	// MTD(f), a series of null window searches of the root, each one moving
+	// the bound towards the score until it is known exactly. Starts from the
+	// last score, and relies on the transposition table to make the repeated
+	// searches cheap
+	// See https://www.chessprogramming.org/MTD(f)
+	MTDF
+}
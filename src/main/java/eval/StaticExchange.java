@@ -0,0 +1,105 @@
+package eval;
+
+import core.CoreConstants;
+import core.Game;
+import core.MoveEncoding;
+import core.MoveGen;
+
+public class StaticExchange {
+	// Static exchange evaluation, works out the material won or lost by a
+	// capture if both sides keep recapturing on the square with their least
+	// valuable attacker, without making any moves. Either side may stop
+	// recapturing when it would lose out. Sliding pieces hidden behind an
+	// attacker (x-rays) join in once the attacker has captured, pins are
+	// ignored
+	// Based on https://www.chessprogramming.org/SEE_-_The_Swap_Algorithm
+
+	// Material balance after each capture in the exchange, each move picker
+	// has its own so nothing is allocated
+	private final int[] gain = new int[32];
+
+	// Returns the material gained by the side making the move, in the units of
+	// EvalConstants.PIECE_VALUES
+	public int see(Game board, int move) {
+		long[] bitboards = board.getBitBoards();
+		int from = MoveEncoding.getFrom(move);
+		int to = MoveEncoding.getTo(move);
+		int piece = MoveEncoding.getPiece(move);
+		int side = piece & 1;
+		long occupied = (bitboards[CoreConstants.WHITE] | bitboards[CoreConstants.BLACK])
+				& ~(1L << from);
+		gain[0] = EvalConstants.PIECE_VALUES[MoveEncoding.getCaptured(move)];
+		// The piece left on the square is the next to be captured
+		int onSquare = piece;
+		if (MoveEncoding.isPromotion(move)) {
+			onSquare = MoveEncoding.getPromotion(move);
+			gain[0] += EvalConstants.PIECE_VALUES[onSquare]
+					- EvalConstants.PIECE_VALUES[CoreConstants.WHITE_PAWN];
+		}
+		if (MoveEncoding.isEnPassant(move)) {
+			// The captured pawn is behind the destination square
+			occupied &= ~(1L << (to + ((side == CoreConstants.WHITE) ? -8 : 8)));
+		}
+		long bishopsQueens = bitboards[CoreConstants.WHITE_BISHOP]
+				| bitboards[CoreConstants.BLACK_BISHOP] | bitboards[CoreConstants.WHITE_QUEEN]
+				| bitboards[CoreConstants.BLACK_QUEEN];
+		long rooksQueens = bitboards[CoreConstants.WHITE_ROOK] | bitboards[CoreConstants.BLACK_ROOK]
+				| bitboards[CoreConstants.WHITE_QUEEN] | bitboards[CoreConstants.BLACK_QUEEN];
+		long attackers = (MoveGen.attackersTo(board, to, occupied, CoreConstants.WHITE)
+				| MoveGen.attackersTo(board, to, occupied, CoreConstants.BLACK)) & occupied;
+		int depth = 0;
+		side ^= 1;
+		while (true) {
+			// What the exchange stands at if side takes the piece on the square,
+			// which is dropped again if side has nothing to take with
+			depth++;
+			gain[depth] = EvalConstants.PIECE_VALUES[onSquare] - gain[depth - 1];
+			// Neither side can do better by carrying on, so stop early
+			if (Math.max(-gain[depth - 1], gain[depth]) < 0) {
+				break;
+			}
+			long sideAttackers = attackers & bitboards[side];
+			if (sideAttackers == 0) {
+				break;
+			}
+			// Find the least valuable attacker, kings last
+			int attacker = CoreConstants.WHITE_KING + side;
+			long attackerBoard = 0;
+			for (int type : ATTACKER_ORDER) {
+				attackerBoard = sideAttackers & bitboards[type + side];
+				if (attackerBoard != 0) {
+					attacker = type + side;
+					break;
+				}
+			}
+			// The king can only capture if the square is no longer defended
+			if (attacker == CoreConstants.WHITE_KING + side
+					&& (attackers & bitboards[side ^ 1]) != 0) {
+				break;
+			}
+			occupied &= ~(attackerBoard & -attackerBoard);
+			// Add any sliders which were behind the piece that just captured
+			if (attacker <= CoreConstants.BLACK_PAWN || attacker >= CoreConstants.WHITE_BISHOP) {
+				attackers |= MoveGen.bishopAttacks(occupied, to) & bishopsQueens;
+			}
+			if (attacker == CoreConstants.WHITE_ROOK + side
+					|| attacker == CoreConstants.WHITE_QUEEN + side) {
+				attackers |= MoveGen.rookAttacks(occupied, to) & rooksQueens;
+			}
+			attackers &= occupied;
+			onSquare = attacker;
+			side ^= 1;
+		}
+		// Work back through the exchange, at each step the side to capture can
+		// choose not to
+		while (--depth > 0) {
+			gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+		}
+		return gain[0];
+	}
+
+	// Piece types from least to most valuable
+	private static final int[] ATTACKER_ORDER = { CoreConstants.WHITE_PAWN,
+			CoreConstants.WHITE_KNIGHT, CoreConstants.WHITE_BISHOP, CoreConstants.WHITE_ROOK,
+			CoreConstants.WHITE_QUEEN, CoreConstants.WHITE_KING };
+}
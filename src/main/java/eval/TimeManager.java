@@ -0,0 +1,156 @@
+package eval;
+
+public class TimeManager {
+	// Decides how long a search may run. A search can be limited by a fixed
+	// time for the move, by the clock and increment, by the number of nodes or
+	// by the depth, or any mix of these, and can be stopped at any time from
+	// another thread with stop()
+	// There are two time limits. The soft limit is the time the search aims to
+	// use, no new iteration is started once half of it has gone, as it would
+	// be unlikely to finish. It shrinks while the best move stays the same
+	// and grows when the score drops. The hard limit stops the search in the
+	// middle of an iteration
+	// See https://www.chessprogramming.org/Time_Management
+	private long moveTime = -1;
+	private long remaining = -1;
+	private long increment;
+	private int movesToGo = EvalConstants.DEFAULT_MOVES_TO_GO;
+	private long nodeLimit = Long.MAX_VALUE;
+	private int depthLimit = (int) EvalConstants.MAX_DEPTH;
+	// Set from another thread to stop the search, checked with the clock and
+	// cleared when a search starts
+	private volatile boolean stopRequested;
+	private long startTime;
+	private long softLimit;
+	private long hardLimit;
+	// How the last iterations went, to adjust the soft limit
+	private int bestMove;
+	private int stableIterations;
+	private int lastScore;
+	private int iterations;
+
+	// Search for exactly this long, in ms
+	public static TimeManager moveTime(long moveTime) {
+		TimeManager timeManager = new TimeManager();
+		timeManager.setMoveTime(moveTime);
+		return timeManager;
+	}
+
+	// Search with this much time left on the clock, and this much added after
+	// each move, in ms
+	public static TimeManager clock(long remaining, long increment) {
+		TimeManager timeManager = new TimeManager();
+		timeManager.setClock(remaining, increment);
+		return timeManager;
+	}
+
+	public static TimeManager depth(int depth) {
+		TimeManager timeManager = new TimeManager();
+		timeManager.setDepthLimit(depth);
+		return timeManager;
+	}
+
+	public static TimeManager nodes(long nodes) {
+		TimeManager timeManager = new TimeManager();
+		timeManager.setNodeLimit(nodes);
+		return timeManager;
+	}
+
+	public void setMoveTime(long moveTime) {
+		this.moveTime = moveTime;
+	}
+
+	public void setClock(long remaining, long increment) {
+		this.remaining = remaining;
+		this.increment = increment;
+	}
+
+	// Moves left until the next time control, if it is known
+	public void setMovesToGo(int movesToGo) {
+		this.movesToGo = Math.max(1, movesToGo);
+	}
+
+	public void setNodeLimit(long nodeLimit) {
+		this.nodeLimit = nodeLimit;
+	}
+
+	public void setDepthLimit(int depthLimit) {
+		this.depthLimit = depthLimit;
+	}
+
+	public int getDepthLimit() {
+		return depthLimit;
+	}
+
+	// Can be called from any thread, the search stops within a few thousand
+	// nodes and returns the best move so far
+	public void stop() {
+		stopRequested = true;
+	}
+
+	// Works out the time limits, called when the search starts. A time
+	// manager can be used again for another search
+	public void start() {
+		startTime = System.currentTimeMillis();
+		stopRequested = false;
+		bestMove = 0;
+		stableIterations = 0;
+		iterations = 0;
+		if (moveTime >= 0) {
+			softLimit = moveTime;
+			hardLimit = moveTime;
+		} else if (remaining >= 0) {
+			// An equal share of the time left, and most of the increment. The
+			// search may use a few times that on a hard move, but never leaves
+			// less than a safety margin on the clock
+			long available = Math.max(0, remaining - EvalConstants.MOVE_OVERHEAD);
+			softLimit = Math.min(available, available / movesToGo + increment * 3 / 4);
+			hardLimit = Math.min(available, softLimit * EvalConstants.HARD_LIMIT_FACTOR);
+		} else {
+			softLimit = Long.MAX_VALUE / 2;
+			hardLimit = Long.MAX_VALUE / 2;
+		}
+	}
+
+	public long getElapsed() {
+		return System.currentTimeMillis() - startTime;
+	}
+
+	// Polled by the search every so many nodes. The hard limit applies at
+	// every depth, if even the first iteration doesn't finish the search
+	// still has the best root move it has found so far
+	public boolean shouldStop(long nodes) {
+		return stopRequested || nodes >= nodeLimit || getElapsed() >= hardLimit;
+	}
+
+	// Called after each completed iteration with its best move and score,
+	// returns whether to start the next one
+	public boolean nextIteration(int depth, int move, int score) {
+		if (move == bestMove) {
+			stableIterations++;
+		} else {
+			stableIterations = 0;
+		}
+		// A score falling from the last iteration means the move that looked
+		// best has run into trouble, and finding another needs more time.
+		// When the best move hasn't changed for a while the next iteration is
+		// unlikely to change it either
+		double scale = 1.0;
+		if (iterations > 0 && score < lastScore - EvalConstants.SCORE_DROP_MARGIN) {
+			scale = 2.0;
+		} else if (stableIterations >= EvalConstants.STABLE_ITERATIONS) {
+			scale = 0.5;
+		}
+		bestMove = move;
+		lastScore = score;
+		iterations++;
+		if (stopRequested || depth >= depthLimit || getElapsed() >= hardLimit) {
+			return false;
+		}
+		if (depth < EvalConstants.MIN_DEPTH) {
+			return true;
+		}
+		long limit = Math.min((long) (softLimit * scale), hardLimit);
+		return getElapsed() <= limit / 2;
+	}
+}
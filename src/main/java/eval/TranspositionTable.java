@@ -0,0 +1,141 @@
+package eval;
+
+import core.MoveEncoding;
+
+public class TranspositionTable {
+	// Fixed size transposition table, the memory used never grows however
+	// long the game. Entries are packed into longs so nothing is allocated
+	// per node, and each is stored as the key XOR the data alongside the data
+	// so threads can share the table without locking, an entry torn by two
+	// threads writing at once just fails the key check
+	// Based on https://www.chessprogramming.org/Shared_Hash_Table#Lockless
+	// and https://www.chessprogramming.org/Transposition_Table
+
+	// Type of score stored, NONE marks an empty entry
+	public static final int NONE = 0;
+	public static final int EXACT = 1;
+	public static final int LOWERBOUND = 2;
+	public static final int UPPERBOUND = 3;
+
+	// Layout of the data (least significant bit first):
+	// bits 0-28 best move (see MoveEncoding)
+	// bits 29-48 score, signed
+	// bits 49-55 depth
+	// bits 56-57 bound
+	// bits 58-63 age of the search which stored it
+	private static final int SCORE_SHIFT = 29;
+	private static final int DEPTH_SHIFT = 49;
+	private static final int BOUND_SHIFT = 56;
+	private static final int AGE_SHIFT = 58;
+	private static final long MOVE_MASK = (1L << SCORE_SHIFT) - 1;
+	private static final int MAX_STORED_DEPTH = 127;
+	private static final int AGES = 64;
+
+	// Each bucket has two entries, the first is only replaced by a deeper
+	// search or once it is left over from an old search, the second is
+	// always replaced
+	private long[] keys;
+	private long[] data;
+	private int bucketMask;
+	private int age = 0;
+
+	public TranspositionTable(int sizeMB) {
+		resize(sizeMB);
+	}
+
+	// Size is rounded down to a power of two buckets, each of 32 bytes
+	public void resize(int sizeMB) {
+		long buckets = Math.max(1, (long) sizeMB * 1024 * 1024 / 32);
+		int size = Integer.highestOneBit((int) Math.min(buckets, 1 << 26));
+		keys = new long[size * 2];
+		data = new long[size * 2];
+		bucketMask = size - 1;
+		age = 0;
+	}
+
+	public void clear() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = 0;
+			data[i] = 0;
+		}
+		age = 0;
+	}
+
+	// Called at the start of each search, so entries from earlier searches are
+	// replaced first
+	public void newSearch() {
+		age = (age + 1) % AGES;
+	}
+
+	// Returns the packed data for the position, or 0 if it isn't stored
+	public long probe(long key) {
+		int index = bucketIndex(key);
+		for (int i = index; i < index + 2; i++) {
+			long entry = data[i];
+			if ((keys[i] ^ entry) == key && getBound(entry) != NONE) {
+				return entry;
+			}
+		}
+		return 0;
+	}
+
+	public void store(long key, int score, int depth, int bound, int bestMove) {
+		int index = bucketIndex(key);
+		int slot = index + 1;
+		long deepEntry = data[index];
+		boolean sameKey = (keys[index] ^ deepEntry) == key;
+		if (sameKey || getBound(deepEntry) == NONE || getAge(deepEntry) != age
+				|| depth >= getDepth(deepEntry)) {
+			slot = index;
+		}
+		// Keep the best move of the position if this search didn't find one
+		long oldEntry = data[slot];
+		if (bestMove == MoveEncoding.NO_MOVE && (keys[slot] ^ oldEntry) == key) {
+			bestMove = getMove(oldEntry);
+		}
+		long entry = (bestMove & MOVE_MASK)
+				| (((long) score & ((1L << (DEPTH_SHIFT - SCORE_SHIFT)) - 1)) << SCORE_SHIFT)
+				| ((long) Math.min(depth, MAX_STORED_DEPTH) << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT) | ((long) age << AGE_SHIFT);
+		data[slot] = entry;
+		keys[slot] = key ^ entry;
+	}
+
+	// Per mille of the entries which were stored by the current search,
+	// sampled from the start of the table
+	public int usage() {
+		int used = 0;
+		int samples = Math.min(1000, data.length);
+		for (int i = 0; i < samples; i++) {
+			if (getBound(data[i]) != NONE && getAge(data[i]) == age) {
+				used++;
+			}
+		}
+		return used * 1000 / samples;
+	}
+
+	private int bucketIndex(long key) {
+		return ((int) key & bucketMask) * 2;
+	}
+
+	public static int getMove(long entry) {
+		return (int) (entry & MOVE_MASK);
+	}
+
+	public static int getScore(long entry) {
+		// Shift up then back down to extend the sign
+		return (int) (entry << (64 - DEPTH_SHIFT) >> (64 - DEPTH_SHIFT + SCORE_SHIFT));
+	}
+
+	public static int getDepth(long entry) {
+		return (int) (entry >>> DEPTH_SHIFT) & MAX_STORED_DEPTH;
+	}
+
+	public static int getBound(long entry) {
+		return (int) (entry >>> BOUND_SHIFT) & 0x3;
+	}
+
+	private static int getAge(long entry) {
+		return (int) (entry >>> AGE_SHIFT);
+	}
+}
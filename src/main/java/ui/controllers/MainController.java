@@ -48,15 +48,11 @@ public class MainController {
 
 	// Called initially
 	public void initialize() {
-		// Intialise all the various lookup tables used by the AI
-		MoveGen.initialiseKnightLookupTable();
-		MoveGen.initialiseKingLookupTable();
-		MoveGen.initialisePawnLookupTable();
-		// Lookup tables for rooks (true) and bishops (false)
-		MoveGen.generateMoveDatabase(true);
-		MoveGen.generateMoveDatabase(false);
-		// Initialise the hash function
-		Game.initialiseZobrist();
+		// Intialise all the various lookup tables used by the AI now, rather
+		// than when the AI first moves
+		MoveGen.initialise();
+		// Show the progress of each search on the console
+		search.setPrintInfo(true);
 		// This allows the user to change how long it takes for the AI to select
 		// moves $\label{code:movespeed}$
 		moveSpeedSlider.valueProperty().addListener(new ChangeListener<Number>() {
@@ -118,10 +114,10 @@ public class MainController {
 
 	public void setupGame() {
 		// New board which is then reset $\label{code:setupgame}$
-		board = Game.getGameInstance();
+		board = new Game();
 		board.resetToInitialSetup();
 		pgnTextField.setText("");
-		moveList = MoveGen.generateMoves(board, true);
+		moveList = MoveGen.generateMoveList(board);
 		double cellSize = paintChessBoard(board);
 		// Make sure there is an active action listener
 		chessPane.setOnMouseClicked(evt -> clickListener(board, evt, cellSize));
@@ -145,7 +141,15 @@ public class MainController {
 			byte piece = board.getBoardArray()[index];
 			for (int square : blueSquares) {
 				if (square == index) {
-					move(board, getMove(moveList, board.getBoardArray()[oldPos], oldPos, index), true);
+					Move move = getMove(moveList, board.getBoardArray()[oldPos], oldPos, index);
+					// If the a pawn is moved onto the final row, then display
+					// the pawn promotion dialog getting player which piece to
+					// convert the pawn to
+					if (move.isPromotion()) {
+						move = getPromotionMove(moveList, oldPos, index,
+								pawnPromotion(move.getPieceType() % 2));
+					}
+					move(board, move, true);
 					blueSquares.clear();
 					pieceMoved = true;
 					break;
@@ -195,6 +199,18 @@ public class MainController {
 		return null;
 	}
 
+	// Returns the promotion move which converts the pawn to the chosen piece
+	private Move getPromotionMove(LinkedList<Move> moves, int oldIndex, int finalIndex,
+			int promotionPiece) {
+		for (Move move : moves) {
+			if (move.getOldPos() == oldIndex && move.getFinalPos() == finalIndex
+					&& move.getPromotionPiece() == promotionPiece) {
+				return move;
+			}
+		}
+		return null;
+	}
+
 	// Gets all the moves available to a particular piece
 	private LinkedList<Move> getMovesPiece(int oldPos, LinkedList<Move> moveList) {
 		LinkedList<Move> result = new LinkedList<>();
@@ -210,21 +226,16 @@ public class MainController {
 		boolean capture = board.getBoardArray()[move.getFinalPos()] != CoreConstants.EMPTY;
 		board.move(move);
 		// Even piece id means white piece, odd mean black piece
+		// Promotions are part of the move so the piece is replaced by
+		// board.move
 		int side = move.getPieceType() % 2;
-		// If the a pawn is moved onto the final row, then display the pawn
-		// promotion dialog getting player which piece to convert the pawn to
-		if (move.isPromotion() && side == UIConstants.PLAYER_COLOUR) {
-			pawnPromotion(move.getOldPos(), move.getFinalPos(), side, board, true);
-		} else if (move.isPromotion() && side == UIConstants.AI_COLOUR) {
-			pawnPromotion(move.getOldPos(), move.getFinalPos(), side, board, false);
-		}
 		updatePGNTextField(board, move, capture);
 		if (repaint) {
 			// Clear the canvas and then repaint it
 			clearCanvas();
 			paintChessBoard(board);
 			// Get the new moves
-			moveList = MoveGen.generateMoves(board, true);
+			moveList = MoveGen.generateMoveList(board);
 
 		}
 		boolean aiLost = board.checkmate(UIConstants.AI_COLOUR);
@@ -266,64 +277,47 @@ public class MainController {
 	}
 
 	// Displays a dialog giving the player the choice of which piece to convert
-	// their pawn to $\label{code:pawnPromotion}$
-	private void pawnPromotion(int pawnOldPos, int newPos, int side, Game board,
-			boolean display) {
-		board.removePiece(pawnOldPos);
-		if (display) {
-			// Display choices
-			String choice = "";
-			List<String> choices = new LinkedList<>();
-			choices.add("Queen");
-			choices.add("Rook");
-			choices.add("Bishop");
-			choices.add("Knight");
-
-			ChoiceDialog<String> dialog = new ChoiceDialog<>("Queen", choices);
-			dialog.setTitle("Pawn Promotion");
-			dialog.setHeaderText("Choose the piece to switch your pawn to");
-			dialog.setContentText("Choose piece:");
-			Optional<String> result = dialog.showAndWait();
-
-			if (result.isPresent()) {
-				choice = result.get();
-			} else {
-				// If no valid answer, re-display the dialog
-				pawnPromotion(pawnOldPos, newPos, side, board, display);
-			}
-			switch (choice) {
-			// Based on choice add the appropriate piece
-			// Note: side == 0 is equivalent to is the side white
-			case "Queen":
-				board.addPiece((side == 0) ? CoreConstants.WHITE_QUEEN : CoreConstants.BLACK_QUEEN,
-						newPos);
-				break;
-			case "Rook":
-				board.addPiece((side == 0) ? CoreConstants.WHITE_ROOK : CoreConstants.BLACK_ROOK,
-						newPos);
-				break;
-			case "Bishop":
-				board.addPiece(
-						(side == 0) ? CoreConstants.WHITE_BISHOP : CoreConstants.BLACK_BISHOP,
-						newPos);
-				break;
-			case "Knight":
-				board.addPiece(
-						(side == 0) ? CoreConstants.WHITE_KNIGHT : CoreConstants.BLACK_KNIGHT,
-						newPos);
-				break;
-			}
+	// their pawn to, returns the id of the chosen piece $\label{code:pawnPromotion}$
+	private int pawnPromotion(int side) {
+		// Display choices
+		String choice = "";
+		List<String> choices = new LinkedList<>();
+		choices.add("Queen");
+		choices.add("Rook");
+		choices.add("Bishop");
+		choices.add("Knight");
+
+		ChoiceDialog<String> dialog = new ChoiceDialog<>("Queen", choices);
+		dialog.setTitle("Pawn Promotion");
+		dialog.setHeaderText("Choose the piece to switch your pawn to");
+		dialog.setContentText("Choose piece:");
+		Optional<String> result = dialog.showAndWait();
+
+		if (result.isPresent()) {
+			choice = result.get();
 		} else {
-			// If it is the AI, immediately select the queen option
-			board.addPiece((side == 0) ? CoreConstants.WHITE_QUEEN : CoreConstants.BLACK_QUEEN,
-					newPos);
+			// If no valid answer, re-display the dialog
+			return pawnPromotion(side);
+		}
+		// Based on choice return the appropriate piece
+		// Note: side is added as black ids are one more than white ids
+		switch (choice) {
+		case "Rook":
+			return CoreConstants.WHITE_ROOK + side;
+		case "Bishop":
+			return CoreConstants.WHITE_BISHOP + side;
+		case "Knight":
+			return CoreConstants.WHITE_KNIGHT + side;
+		default:
+			return CoreConstants.WHITE_QUEEN + side;
 		}
 	}
 
 	private void moveAI(Game board) {
-		// Use the search class to select the best move
+		// Use the search class to select the best move, the search gets its
+		// own copy of the board to work on
 		int colorFactor = (UIConstants.AI_COLOUR == 0) ? EvalConstants.WHITE : EvalConstants.BLACK;
-		Move move = search.rootNegamax(board, colorFactor);
+		Move move = search.rootNegamax(new Game(board), colorFactor);
 		if (move != null) {
 			move(board, move, true);
 		}
@@ -390,9 +384,10 @@ public class MainController {
 	// Save the number of moves made so far
 	// Then save the board array by index order
 	// Then save all the bitboards for each piece by piece id order
-	// Then save all the history arrays in order from the first move to the
-	// latest move
-	// Save the state of castling
+	// Then save the history arrays (move played, castling flags, en passant
+	// squares and position key) in order from the first move to the latest
+	// move
+	// Save the castling rights
 	// Save the current pgn
 	// Save the colour of the player
 	// Save the colour of the AI
@@ -420,30 +415,14 @@ public class MainController {
 				}
 
 				for (int i = 0; i < noOfMoves; i++) {
-					board.moveHistory[i] = Long.valueOf(reader.readLine());
-					board.whiteHistory[i] = Long.valueOf(reader.readLine());
-					board.blackHistory[i] = Long.valueOf(reader.readLine());
-					board.pawnHistory[0][i] = Long.valueOf(reader.readLine());
-					board.pawnHistory[1][i] = Long.valueOf(reader.readLine());
-					board.rookHistory[0][i] = Long.valueOf(reader.readLine());
-					board.rookHistory[1][i] = Long.valueOf(reader.readLine());
-					board.queenHistory[0][i] = Long.valueOf(reader.readLine());
-					board.queenHistory[1][i] = Long.valueOf(reader.readLine());
-					board.bishopHistory[0][i] = Long.valueOf(reader.readLine());
-					board.bishopHistory[1][i] = Long.valueOf(reader.readLine());
-					board.knightHistory[0][i] = Long.valueOf(reader.readLine());
-					board.knightHistory[1][i] = Long.valueOf(reader.readLine());
-					board.kingHistory[0][i] = Long.valueOf(reader.readLine());
-					board.kingHistory[1][i] = Long.valueOf(reader.readLine());
-					board.boardHistory[0][i] = Byte.valueOf(reader.readLine());
-					board.boardHistory[1][i] = Byte.valueOf(reader.readLine());
-					board.castlingHistory[0][i] = Long.valueOf(reader.readLine());
-					board.castlingHistory[1][i] = Long.valueOf(reader.readLine());
-					board.epHistory[0][i] = Long.valueOf(reader.readLine());
-					board.epHistory[1][i] = Long.valueOf(reader.readLine());
+					board.moveHistory[i] = Integer.valueOf(reader.readLine());
+					board.castlingHistory[i] = Integer.valueOf(reader.readLine());
+					board.epHistory[i] = Long.valueOf(reader.readLine());
+					board.keyHistory[i] = Long.valueOf(reader.readLine());
 				}
-				board.getCastlingFlags()[0] = Integer.valueOf(reader.readLine());
-				board.getCastlingFlags()[1] = Integer.valueOf(reader.readLine());
+				board.setCastlingRights(Integer.valueOf(reader.readLine()));
+				// The board was filled in directly so the key is recalculated
+				board.recomputeKey();
 				int pgnNoOfLines = Integer.valueOf(reader.readLine());
 				String pgnText = "";
 				for (int i = 0; i < pgnNoOfLines; i++) {
@@ -458,7 +437,7 @@ public class MainController {
 				UIConstants.AI_COLOUR = Integer.valueOf(reader.readLine());
 				clearCanvas();
 				paintChessBoard(board);
-				moveList = MoveGen.generateMoves(board, true);
+				moveList = MoveGen.generateMoveList(board);
 			} catch (Exception e) {
 				Alert alert = new Alert(AlertType.ERROR);
 				alert.setTitle("Error Dialog");
@@ -493,29 +472,11 @@ public class MainController {
 		}
 		for (int i = 0; i < noOfMoves; i++) {
 			result += String.valueOf(board.moveHistory[i]) + "\n";
-			result += String.valueOf(board.whiteHistory[i]) + "\n";
-			result += String.valueOf(board.blackHistory[i]) + "\n";
-			result += String.valueOf(board.pawnHistory[0][i]) + "\n";
-			result += String.valueOf(board.pawnHistory[1][i]) + "\n";
-			result += String.valueOf(board.rookHistory[0][i]) + "\n";
-			result += String.valueOf(board.rookHistory[1][i]) + "\n";
-			result += String.valueOf(board.queenHistory[0][i]) + "\n";
-			result += String.valueOf(board.queenHistory[1][i]) + "\n";
-			result += String.valueOf(board.bishopHistory[0][i]) + "\n";
-			result += String.valueOf(board.bishopHistory[1][i]) + "\n";
-			result += String.valueOf(board.knightHistory[0][i]) + "\n";
-			result += String.valueOf(board.knightHistory[1][i]) + "\n";
-			result += String.valueOf(board.kingHistory[0][i]) + "\n";
-			result += String.valueOf(board.kingHistory[1][i]) + "\n";
-			result += String.valueOf(board.boardHistory[0][i]) + "\n";
-			result += String.valueOf(board.boardHistory[1][i]) + "\n";
-			result += String.valueOf(board.castlingHistory[0][i]) + "\n";
-			result += String.valueOf(board.castlingHistory[1][i]) + "\n";
-			result += String.valueOf(board.epHistory[0][i]) + "\n";
-			result += String.valueOf(board.epHistory[1][i]) + "\n";
+			result += String.valueOf(board.castlingHistory[i]) + "\n";
+			result += String.valueOf(board.epHistory[i]) + "\n";
+			result += String.valueOf(board.keyHistory[i]) + "\n";
 		}
-		result += board.getCastlingFlags()[0] + "\n";
-		result += board.getCastlingFlags()[1] + "\n";
+		result += board.getCastlingRights() + "\n";
 		result += String.valueOf(countLines(pgnTextField.getText())) + "\n";
 		result += pgnTextField.getText() + "\n";
 		result += String.valueOf(UIConstants.PLAYER_COLOUR) + "\n";
@@ -562,13 +523,13 @@ public class MainController {
 			pgnTextField.setText(pgnHistory[board.getMoveNumber()]);
 			clearCanvas();
 			paintChessBoard(board);
-			moveList = MoveGen.generateMoves(board, true);
+			moveList = MoveGen.generateMoveList(board);
 		} else if (board.getMoveNumber() >= 1 && !UIConstants.PLAYING_AI) {
 			board.undo();
 			pgnTextField.setText(pgnHistory[board.getMoveNumber()]);
 			clearCanvas();
 			paintChessBoard(board);
-			moveList = MoveGen.generateMoves(board, true);
+			moveList = MoveGen.generateMoveList(board);
 		}
 	}
 
@@ -587,7 +548,7 @@ public class MainController {
 				// Change the board
 				board.loadFen(result.get());
 				// Regenerate moves
-				moveList = MoveGen.generateMoves(board, true);
+				moveList = MoveGen.generateMoveList(board);
 				pgnTextField.setText("");
 				clearCanvas();
 				paintChessBoard(board);
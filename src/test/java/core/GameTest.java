@@ -1,6 +1,8 @@
 package core;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -11,13 +13,8 @@ public class GameTest {
 
     @Before()
     public void setup() {
-        board = Game.getGameInstance();
+        board = new Game();
         board.resetToInitialSetup();
-        MoveGen.initialiseKnightLookupTable();
-        MoveGen.initialiseKingLookupTable();
-        MoveGen.initialisePawnLookupTable();
-        MoveGen.generateMoveDatabase(true);
-        MoveGen.generateMoveDatabase(false);
     }
 
     @Test
@@ -102,5 +99,157 @@ public class GameTest {
         }
     }
 
+    @Test
+    public void undoRestoresPosition() {
+        // Positions with captures, promotions, en passant and castling
+        String[] positions = {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6",
+                "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b"};
+        for (String fen : positions) {
+            board.loadFen(fen);
+            byte[] boardArray = board.getBoardArray().clone();
+            long[] bitboards = board.getBitBoards().clone();
+            int castling = board.getCastlingRights();
+            long[] ep = board.getEpTargetSquares().clone();
+            int toMove = board.toMove;
+            for (int move : MoveGen.generateMoves(board)) {
+                board.move(move);
+                board.undo();
+                assertArrayEquals(boardArray, board.getBoardArray());
+                assertArrayEquals(bitboards, board.getBitBoards());
+                assertEquals(castling, board.getCastlingRights());
+                assertArrayEquals(ep, board.getEpTargetSquares());
+                assertEquals(toMove, board.toMove);
+            }
+        }
+    }
+
+
+    @Test
+    public void castlingRightsLostByKingAndRookMoves() {
+        board.loadFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq");
+        assertEquals(CoreConstants.ALL_CASTLING_RIGHTS, board.getCastlingRights());
+        // Rook a1 to a8 gives up white queenside and takes black queenside
+        board.move(MoveEncoding.create(CoreConstants.WHITE_ROOK, 0, 56, CoreConstants.BLACK_ROOK,
+                CoreConstants.EMPTY, CoreConstants.noCastle, 0));
+        assertEquals(CoreConstants.castlingRight[CoreConstants.wKSide]
+                | CoreConstants.castlingRight[CoreConstants.bKSide], board.getCastlingRights());
+        // Moving the king loses the remaining black right
+        board.move(MoveEncoding.create(CoreConstants.BLACK_KING, 60, 52, CoreConstants.EMPTY,
+                CoreConstants.EMPTY, CoreConstants.noCastle, 0));
+        assertEquals(CoreConstants.castlingRight[CoreConstants.wKSide], board.getCastlingRights());
+        board.undo();
+        board.undo();
+        assertEquals(CoreConstants.ALL_CASTLING_RIGHTS, board.getCastlingRights());
+        // Without the castling field the rights follow the kings and rooks
+        board.loadFen("4k2r/8/8/8/8/8/8/R3K3 w");
+        assertEquals(CoreConstants.castlingRight[CoreConstants.wQSide]
+                | CoreConstants.castlingRight[CoreConstants.bKSide], board.getCastlingRights());
+        board.loadFen("r3k2r/8/8/8/8/8/8/R3K2R w -");
+        assertEquals(0, board.getCastlingRights());
+    }
+
+    @Test
+    public void copiesAreIndependent() {
+        board.move(MoveEncoding.create(CoreConstants.WHITE_PAWN, 12, 28, CoreConstants.EMPTY,
+                CoreConstants.EMPTY, CoreConstants.noCastle, MoveEncoding.DOUBLE_PUSH));
+        Game copy = new Game(board);
+        assertArrayEquals(board.getBoardArray(), copy.getBoardArray());
+        assertEquals(CoreConstants.BLACK, copy.toMove);
+        // Moves made on the copy don't affect the original
+        copy.move(MoveGen.generateMoves(copy)[0]);
+        assertEquals(CoreConstants.BLACK, board.toMove);
+        assertEquals(1, board.getMoveNumber());
+        // The history is copied so moves played before can be undone
+        copy.undo();
+        copy.undo();
+        Game initial = new Game();
+        initial.resetToInitialSetup();
+        assertArrayEquals(initial.getBoardArray(), copy.getBoardArray());
+        assertArrayEquals(initial.getBitBoards(), copy.getBitBoards());
+        // Copying into an existing board
+        copy.copyFrom(board);
+        assertArrayEquals(board.getBitBoards(), copy.getBitBoards());
+        assertEquals(board.getMoveNumber(), copy.getMoveNumber());
+    }
+
+    @Test
+    public void incrementalKeyMatchesRecomputedKey() {
+        board.loadFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+        checkKeys(board, 3);
+        board.loadFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6");
+        checkKeys(board, 3);
+    }
 
+    private void checkKeys(Game board, int depth) {
+        assertEquals(board.computeKey(), board.getKey());
+        if (depth == 0) {
+            return;
+        }
+        long key = board.getKey();
+        for (int move : MoveGen.generateMoves(board)) {
+            board.move(move);
+            checkKeys(board, depth - 1);
+            board.undo();
+            assertEquals(key, board.getKey());
+        }
+    }
+
+    @Test
+    public void keysDependOnPositionNotMoveOrder() {
+        int[] knightMoves = {
+                MoveEncoding.create(CoreConstants.WHITE_KNIGHT, 6, 21, CoreConstants.EMPTY,
+                        CoreConstants.EMPTY, CoreConstants.noCastle, 0),
+                MoveEncoding.create(CoreConstants.BLACK_KNIGHT, 57, 42, CoreConstants.EMPTY,
+                        CoreConstants.EMPTY, CoreConstants.noCastle, 0),
+                MoveEncoding.create(CoreConstants.WHITE_KNIGHT, 1, 18, CoreConstants.EMPTY,
+                        CoreConstants.EMPTY, CoreConstants.noCastle, 0),
+                MoveEncoding.create(CoreConstants.BLACK_KNIGHT, 62, 45, CoreConstants.EMPTY,
+                        CoreConstants.EMPTY, CoreConstants.noCastle, 0) };
+        Game other = new Game();
+        other.resetToInitialSetup();
+        for (int i = 0; i < 4; i++) {
+            board.move(knightMoves[i]);
+            other.move(knightMoves[(i + 2) % 4]);
+        }
+        assertEquals(board.getKey(), other.getKey());
+        // The side to move, castling rights and en passant square are hashed
+        board.loadFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq -");
+        long key = board.getKey();
+        board.loadFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq -");
+        assertNotEquals(key, board.getKey());
+        board.loadFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b Kkq -");
+        assertNotEquals(key, board.getKey());
+        board.loadFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3");
+        assertNotEquals(key, board.getKey());
+    }
+
+    @Test
+    public void lastMoveIsTheMoveJustPlayed() {
+        assertEquals(MoveEncoding.NO_MOVE, board.getLastMove());
+        int[] moves = MoveGen.generateMoves(board);
+        board.move(moves[0]);
+        assertEquals(moves[0], board.getLastMove());
+        board.undo();
+        assertEquals(MoveEncoding.NO_MOVE, board.getLastMove());
+    }
+
+    @Test
+    public void nullMovePassesTheTurnAndIsUndone() {
+        board.loadFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6");
+        long key = board.getKey();
+        int noOfMoves = MoveGen.generateMoves(board).length;
+        board.makeNullMove();
+        assertEquals(CoreConstants.BLACK, board.toMove);
+        assertEquals(MoveEncoding.NO_MOVE, board.getLastMove());
+        assertEquals(board.computeKey(), board.getKey());
+        // The en passant capture is no longer possible
+        Game other = new Game();
+        other.loadFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR b KQkq -");
+        assertEquals(other.getKey(), board.getKey());
+        board.undoNullMove();
+        assertEquals(CoreConstants.WHITE, board.toMove);
+        assertEquals(key, board.getKey());
+        assertEquals(noOfMoves, MoveGen.generateMoves(board).length);
+    }
 }
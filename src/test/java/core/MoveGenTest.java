@@ -1,8 +1,11 @@
 package core;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -13,15 +16,8 @@ public class MoveGenTest {
 
     @Before()
     public void setup() {
-        board = Game.getGameInstance();
+        board = new Game();
         board.resetToInitialSetup();
-        // Initialise the various lookup tables so that move generation works
-        // properly
-        MoveGen.initialiseKnightLookupTable();
-        MoveGen.initialiseKingLookupTable();
-        MoveGen.initialisePawnLookupTable();
-        MoveGen.generateMoveDatabase(true);
-        MoveGen.generateMoveDatabase(false);
     }
 
     @Test
@@ -59,22 +55,158 @@ public class MoveGenTest {
         assertEquals(4865609, perft);
     }
 
-    // Perft tests the move generation by traversing the strictly legal game
-    // tree $\label{code:perft}$
-    private long perft(Game board, int depth) {
-        long nodes = 0;
-        LinkedList<Move> moveList = MoveGen.generateMoves(board, true);
-        int nMoves = moveList.size();
-        if (depth == 1) {
-            return nMoves;
+    @Test
+    public void examinePerftForPosition3() {
+        // See https://www.chessprogramming.org/Perft_Results#Position_3
+        // Includes en passant captures which would expose the king along a row
+        board.loadFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8");
+        assertEquals(14, perft(board, 1));
+        assertEquals(191, perft(board, 2));
+        assertEquals(2812, perft(board, 3));
+        assertEquals(43238, perft(board, 4));
+        assertEquals(674624, perft(board, 5));
+    }
+
+    @Test
+    public void examinePerftForPosition2() {
+        // See https://www.chessprogramming.org/Perft_Results#Position_2
+        // Kiwipete, tests castling
+        board.loadFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+        assertEquals(48, perft(board, 1));
+        assertEquals(2039, perft(board, 2));
+        assertEquals(97862, perft(board, 3));
+    }
+
+    @Test
+    public void castlingRequiresSafeSquares() {
+        // Both castling moves are available
+        board.loadFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq");
+        assertEquals(2, countCastlingMoves(board));
+        // The king cannot pass through d1, but b1 may be attacked
+        board.loadFen("r2rk2r/8/8/8/8/8/8/R3K2R w KQkq");
+        assertEquals(1, countCastlingMoves(board));
+        board.loadFen("rr2k2r/8/8/8/8/8/8/R3K2R w KQkq");
+        assertEquals(2, countCastlingMoves(board));
+        // Not allowed out of check or without the rights
+        board.loadFen("r3k2r/8/8/8/8/8/8/R3K2R w -");
+        assertEquals(0, countCastlingMoves(board));
+        board.loadFen("r3k2r/4r3/8/8/8/8/8/R3K2R w KQkq");
+        assertEquals(0, countCastlingMoves(board));
+    }
+
+    private int countCastlingMoves(Game board) {
+        int castlingMoves = 0;
+        for (int move : MoveGen.generateMoves(board)) {
+            if (MoveEncoding.getCastling(move) != CoreConstants.noCastle) {
+                castlingMoves++;
+            }
+        }
+        return castlingMoves;
+    }
+
+    @Test
+    public void lookupTablesAreFilledOnce() {
+        long[] knightTable = CoreConstants.KNIGHT_TABLE.clone();
+        MoveGen.initialise();
+        assertArrayEquals(knightTable, CoreConstants.KNIGHT_TABLE);
+        // Knight on a1 attacks b3 and c2
+        assertEquals((1L << 17) | (1L << 10), CoreConstants.KNIGHT_TABLE[0]);
+    }
+
+    @Test
+    public void magicLookupsMatchRayScan() {
+        Random random = new Random(0);
+        for (int index = 0; index < 64; index++) {
+            assertTrue(MagicFinder.isValid(index, true, CoreConstants.magicNumbersRook[index],
+                    64 - (int) CoreConstants.magicShiftRook[index]));
+            assertTrue(MagicFinder.isValid(index, false, CoreConstants.magicNumbersBishop[index],
+                    64 - (int) CoreConstants.magicShiftBishop[index]));
+            for (int i = 0; i < 100; i++) {
+                long occupied = random.nextLong() & random.nextLong();
+                assertEquals(MoveGen.slidingAttacks(index, occupied, true),
+                        MoveGen.rookAttacks(occupied, index));
+                assertEquals(MoveGen.slidingAttacks(index, occupied, false),
+                        MoveGen.bishopAttacks(occupied, index));
+            }
+        }
+    }
+
+    @Test
+    public void promotionsIncludeUnderpromotions() {
+        // Pawn on a7 can promote to a queen, rook, bishop or knight
+        board.loadFen("8/P7/8/8/8/8/8/k6K");
+        int[] moves = MoveGen.generateMoves(board);
+        assertEquals(7, moves.length);
+        int promotions = 0;
+        for (int move : moves) {
+            if (MoveEncoding.isPromotion(move)) {
+                promotions++;
+                board.move(move);
+                assertEquals(MoveEncoding.getPromotion(move), board.getBoardArray()[56]);
+                assertEquals(0, board.getBitBoards()[CoreConstants.WHITE_PAWN]);
+                board.undo();
+            }
         }
+        assertEquals(4, promotions);
+        assertEquals(CoreConstants.WHITE_PAWN, board.getBoardArray()[48]);
+    }
+
+    @Test
+    public void stagedGenerationMatchesFullGeneration() {
+        checkStagedGeneration(board, 3, new int[0]);
+        board.loadFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8");
+        checkStagedGeneration(board, 4, new int[0]);
+        // Promotions by push and capture, castling and checks
+        board.loadFen("r3k2r/1P6/8/8/8/8/6p1/R3K2R");
+        checkStagedGeneration(board, 3, new int[0]);
+        // Evading a pawn check by capturing en passant, and a double check
+        board.loadFen("8/8/8/2k5/3Pp3/8/8/4K3 b - d3");
+        checkStagedGeneration(board, 2, new int[0]);
+        board.loadFen("4k3/8/8/8/8/5n2/8/4RK2 b - -");
+        checkStagedGeneration(board, 3, new int[0]);
+    }
 
-        for (int i = 0; i < nMoves; i++) {
-            board.move(moveList.get(i));
-            nodes += perft(board, depth - 1);
+    // Captures and quiets together must be exactly the legal moves, every
+    // legal move must pass isLegal and the moves of the parent position which
+    // are not legal here must fail it
+    private void checkStagedGeneration(Game board, int depth, int[] parentMoves) {
+        int[] all = MoveGen.generateMoves(board);
+        int[] buffer = new int[CoreConstants.MAX_MOVES_PER_POSITION];
+        int noOfCaptures = MoveGen.generateCaptures(board, buffer);
+        int[] staged = Arrays.copyOf(buffer, noOfCaptures);
+        int noOfQuiets = MoveGen.generateQuiets(board, buffer);
+        staged = Arrays.copyOf(staged, noOfCaptures + noOfQuiets);
+        System.arraycopy(buffer, 0, staged, noOfCaptures, noOfQuiets);
+        int[] sortedAll = all.clone();
+        Arrays.sort(sortedAll);
+        Arrays.sort(staged);
+        assertArrayEquals(sortedAll, staged);
+        // In check the evasion generator gives the same moves
+        if (board.check(board.toMove)) {
+            int[] evasions = Arrays.copyOf(buffer, MoveGen.generateEvasions(board, buffer));
+            Arrays.sort(evasions);
+            assertArrayEquals(sortedAll, evasions);
+        }
+        for (int move : all) {
+            assertTrue(MoveGen.isLegal(board, move));
+        }
+        for (int move : parentMoves) {
+            assertEquals(Arrays.binarySearch(sortedAll, move) >= 0, MoveGen.isLegal(board, move));
+        }
+        if (depth == 0) {
+            return;
+        }
+        for (int move : all) {
+            board.move(move);
+            checkStagedGeneration(board, depth - 1, sortedAll);
             board.undo();
         }
-        return nodes;
+    }
+
+    // Perft tests the move generation by traversing the strictly legal game
+    // tree, see Perft
+    private long perft(Game board, int depth) {
+        return new Perft().perft(board, depth);
     }
 
 
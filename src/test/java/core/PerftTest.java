@@ -0,0 +1,63 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PerftTest {
+
+    Game board;
+
+    @Before()
+    public void setup() {
+        board = new Game();
+        board.resetToInitialSetup();
+    }
+
+    @Test
+    public void divideSumsToPerft() {
+        Map<String, Long> divide = new Perft().divide(board, 3);
+        assertEquals(20, divide.size());
+        assertEquals(Long.valueOf(600), divide.get("e2e4"));
+        long nodes = 0;
+        for (long count : divide.values()) {
+            nodes += count;
+        }
+        assertEquals(8902, nodes);
+    }
+
+    @Test
+    public void hashedPerftMatchesUnhashed() {
+        // See https://www.chessprogramming.org/Perft_Results#Position_2
+        board.loadFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+        assertEquals(4085603, new Perft(16, 4).perft(board, 4));
+        assertEquals(4085603, new Perft(0, 1).perft(board, 4));
+        // The board is left as it was
+        assertEquals(48, new Perft().perft(board, 1));
+    }
+
+    @Test
+    public void examinePerftForPosition4() {
+        // See https://www.chessprogramming.org/Perft_Results#Position_4
+        board.loadFen("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1");
+        Perft perft = new Perft(16, 4);
+        assertEquals(6, perft.perft(board, 1));
+        assertEquals(264, perft.perft(board, 2));
+        assertEquals(9467, perft.perft(board, 3));
+        assertEquals(422333, perft.perft(board, 4));
+    }
+
+    @Test
+    public void examinePerftForPosition5() {
+        // See https://www.chessprogramming.org/Perft_Results#Position_5
+        board.loadFen("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8");
+        Perft perft = new Perft(16, 4);
+        assertEquals(44, perft.perft(board, 1));
+        assertEquals(1486, perft.perft(board, 2));
+        assertEquals(62379, perft.perft(board, 3));
+        assertEquals(2103487, perft.perft(board, 4));
+    }
+}
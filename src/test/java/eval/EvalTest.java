@@ -3,18 +3,12 @@ import static org.junit.Assert.assertEquals;
 import org.junit.Test;
 
 import core.Game;
-import core.MoveGen;
 
 public class EvalTest {
 
 	@Test
 	public void testEvaluation() {
-		Game board = Game.getGameInstance();
-		MoveGen.initialiseKnightLookupTable();
-		MoveGen.initialiseKingLookupTable();
-		MoveGen.initialisePawnLookupTable();
-		MoveGen.generateMoveDatabase(true);
-		MoveGen.generateMoveDatabase(false);
+		Game board = new Game();
 
 		board.resetToInitialSetup();
 		assertEquals(0, Evaluation.evaluate(board, 1), 0);
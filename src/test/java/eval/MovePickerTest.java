@@ -0,0 +1,97 @@
+package eval;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import core.CoreConstants;
+import core.Game;
+import core.MoveEncoding;
+import core.MoveGen;
+
+public class MovePickerTest {
+	private MovePicker picker;
+	private Game board;
+
+	@Before
+	public void setup() {
+		MoveGen.initialise();
+		picker = new MovePicker(new int[CoreConstants.BLACK_KING + 1][64]);
+		board = new Game();
+	}
+
+	@Test
+	public void everyMoveIsPickedOnce() {
+		String[] fens = { "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+				"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq -",
+				"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ -",
+				// In check
+				"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q2/PPPBBPpP/R3K2R w KQkq -" };
+		for (String fen : fens) {
+			board.loadFen(fen);
+			int[] legal = MoveGen.generateMoves(board);
+			// Legal moves as the hash, killer and counter moves must not be
+			// returned twice
+			picker.init(board, legal[legal.length - 1], legal[0], legal[1], legal[2]);
+			int[] picked = new int[legal.length];
+			int count = 0;
+			int move;
+			while ((move = picker.next()) != MoveEncoding.NO_MOVE) {
+				picked[count++] = move;
+			}
+			assertEquals(legal.length, count);
+			Arrays.sort(legal);
+			Arrays.sort(picked);
+			assertTrue(Arrays.equals(legal, picked));
+		}
+	}
+
+	@Test
+	public void capturesComeMostValuableVictimFirst() {
+		// The pawn can take the queen or the knight, the queen can take the
+		// knight, which is defended
+		board.loadFen("4k3/8/2p5/1q1n4/2P5/8/8/3QK3 w - -");
+		picker.init(board, MoveEncoding.NO_MOVE, MoveEncoding.NO_MOVE, MoveEncoding.NO_MOVE,
+				MoveEncoding.NO_MOVE);
+		assertEquals("c4b5", MoveEncoding.toString(picker.next()));
+		assertEquals("c4d5", MoveEncoding.toString(picker.next()));
+		// The losing capture is only returned after the quiet moves
+		int move;
+		int last = MoveEncoding.NO_MOVE;
+		while ((move = picker.next()) != MoveEncoding.NO_MOVE) {
+			last = move;
+		}
+		assertEquals("d1d5", MoveEncoding.toString(last));
+	}
+
+	@Test
+	public void quiescenceOnlyReturnsWinningCaptures() {
+		board.loadFen("4k3/8/2p5/1q1n4/2P5/8/8/3QK3 w - -");
+		picker.initQuiescence(board, MoveEncoding.NO_MOVE);
+		assertEquals("c4b5", MoveEncoding.toString(picker.next()));
+		assertEquals("c4d5", MoveEncoding.toString(picker.next()));
+		assertEquals(MoveEncoding.NO_MOVE, picker.next());
+	}
+
+	@Test
+	public void evasionsCanBeCountedBeforeTheyArePicked() {
+		board.loadFen("4k3/8/8/8/8/8/4r3/R3K3 w - -");
+		int[] legal = MoveGen.generateMoves(board);
+		picker.init(board, legal[0], MoveEncoding.NO_MOVE, MoveEncoding.NO_MOVE,
+				MoveEncoding.NO_MOVE);
+		assertTrue(picker.isInCheck());
+		assertEquals(legal.length, picker.countEvasions());
+		// Counting doesn't change what is returned
+		int count = 0;
+		assertEquals(legal[0], picker.next());
+		count++;
+		while (picker.next() != MoveEncoding.NO_MOVE) {
+			count++;
+		}
+		assertEquals(legal.length, count);
+	}
+}
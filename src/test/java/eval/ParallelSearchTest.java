@@ -0,0 +1,78 @@
+package eval;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import core.Game;
+import core.Move;
+import core.MoveEncoding;
+import core.MoveGen;
+
+public class ParallelSearchTest {
+	private Game board;
+
+	@Before
+	public void setup() {
+		MoveGen.initialise();
+		board = new Game();
+	}
+
+	@Test
+	public void findsMateInOne() {
+		try (ParallelSearch search = new ParallelSearch(1, 4)) {
+			board.loadFen("6k1/5ppp/8/8/8/8/8/R5K1 w");
+			Move move = search.rootNegamax(board, EvalConstants.WHITE, 10_000, 4);
+			assertEquals("a1a8", MoveEncoding.toString(move.getEncoding()));
+			assertEquals(EvalConstants.MATE - 1, search.getScore());
+		}
+	}
+
+	@Test
+	public void scoreDoesNotDependOnThreads() {
+		// Without the hash table the score at a fixed depth is the minimax
+		// value, however the work is split
+		String[] fens = { "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+				"r1bq1rk1/pp2bppp/2n2n2/2pp4/3P4/2PBPN2/PP1N1PPP/R2QK2R w KQ -" };
+		for (String fen : fens) {
+			int[] scores = new int[2];
+			int[] threads = { 1, 4 };
+			for (int i = 0; i < threads.length; i++) {
+				try (ParallelSearch search = new ParallelSearch(1, threads[i])) {
+					search.setUseHash(false);
+					board.loadFen(fen);
+					search.rootNegamax(board, EvalConstants.WHITE, 60_000, 3);
+					assertEquals(3, search.getCompletedDepth());
+					scores[i] = search.getScore();
+				}
+			}
+			assertEquals(scores[0], scores[1]);
+		}
+	}
+
+	@Test
+	public void unfinishedSearchStillReturnsALegalMove() {
+		try (ParallelSearch search = new ParallelSearch(1, 4)) {
+			board.loadFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+			long key = board.getKey();
+			Move move = search.rootNegamax(board, EvalConstants.WHITE, 1, 15);
+			assertNotNull(move);
+			assertTrue(MoveGen.isLegal(board, move.getEncoding()));
+			assertEquals(key, board.getKey());
+		}
+	}
+
+	@Test
+	public void quiescenceSeesTheRecapture() {
+		// As in Search, taking the pawn loses the queen
+		try (ParallelSearch search = new ParallelSearch(1, 2)) {
+			board.loadFen("4k3/8/4p3/3p4/8/8/8/3QK3 w");
+			Move move = search.rootNegamax(board, EvalConstants.WHITE, 10_000, 1);
+			assertTrue(!MoveEncoding.toString(move.getEncoding()).equals("d1d5"));
+			assertTrue(search.getScore() > 0);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package eval;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import core.Game;
+import core.Move;
+import core.MoveEncoding;
+import core.MoveGen;
+
+public class SearchTest {
+	private Search search;
+	private Game board;
+
+	@Before
+	public void setup() {
+		MoveGen.initialise();
+		search = new Search(1);
+		board = new Game();
+	}
+
+	@Test
+	public void findsMateInOne() {
+		board.loadFen("6k1/5ppp/8/8/8/8/8/R5K1 w");
+		Move move = search.rootNegamax(board, EvalConstants.WHITE, 10_000, 4);
+		assertEquals("a1a8", MoveEncoding.toString(move.getEncoding()));
+		assertEquals(EvalConstants.MATE - 1, search.getScore());
+	}
+
+	@Test
+	public void findsMateInOneForBlack() {
+		board.loadFen("r5k1/8/8/8/8/8/5PPP/6K1 b");
+		Move move = search.rootNegamax(board, EvalConstants.BLACK, 10_000, 4);
+		assertEquals("a8a1", MoveEncoding.toString(move.getEncoding()));
+	}
+
+	@Test
+	public void takesAHangingQueen() {
+		board.loadFen("4k3/8/8/3q4/8/8/3R4/4K3 w");
+		Move move = search.rootNegamax(board, EvalConstants.WHITE, 10_000, 3);
+		assertEquals("d2d5", MoveEncoding.toString(move.getEncoding()));
+		assertTrue(search.getScore() > 0);
+	}
+
+	@Test
+	public void quiescenceSeesTheRecapture() {
+		// At one ply taking the pawn wins material, until the recapture of the
+		// queen is seen
+		board.loadFen("4k3/8/4p3/3p4/8/8/8/3QK3 w");
+		Move move = search.rootNegamax(board, EvalConstants.WHITE, 10_000, 1);
+		assertTrue(!MoveEncoding.toString(move.getEncoding()).equals("d1d5"));
+		assertTrue(search.getScore() > 0);
+	}
+
+	@Test
+	public void principalVariationStartsWithTheMovePlayed() {
+		board.resetToInitialSetup();
+		Move move = search.rootNegamax(board, EvalConstants.WHITE, 10_000, 4);
+		int[] pv = search.getPrincipalVariation();
+		assertEquals(4, search.getCompletedDepth());
+		// The line can be cut short by a hit in the transposition table
+		assertTrue(pv.length >= 1 && pv.length <= 4);
+		assertEquals(move.getEncoding(), pv[0]);
+		// Every move in the line is legal in turn
+		for (int pvMove : pv) {
+			assertTrue(MoveGen.isLegal(board, pvMove));
+			board.move(pvMove);
+		}
+	}
+
+	@Test
+	public void forcedMoveIsPlayedStraightAway() {
+		board.loadFen("k7/8/8/8/8/8/1r6/K7 w");
+		Move move = search.rootNegamax(board, EvalConstants.WHITE, 10_000, 10);
+		assertEquals("a1b2", MoveEncoding.toString(move.getEncoding()));
+		assertEquals(0, search.getCompletedDepth());
+	}
+
+	@Test
+	public void unfinishedSearchStillReturnsALegalMove() {
+		board.loadFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+		Move move = search.rootNegamax(board, EvalConstants.WHITE, 1, 15);
+		assertNotNull(move);
+		assertTrue(MoveGen.isLegal(board, move.getEncoding()));
+		assertTrue(search.getCompletedDepth() < 15);
+	}
+
+	@Test
+	public void helperThreadsShareTheSearch() {
+		Search parallel = new Search(1, 4);
+		assertEquals(4, parallel.getThreads());
+		board.loadFen("6k1/5ppp/8/8/8/8/8/R5K1 w");
+		Move move = parallel.rootNegamax(board, EvalConstants.WHITE, 10_000, 4);
+		assertEquals("a1a8", MoveEncoding.toString(move.getEncoding()));
+		// The board given to the search is left as it was
+		board.loadFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+		long key = board.getKey();
+		move = parallel.rootNegamax(board, EvalConstants.WHITE, 10_000, 4);
+		assertTrue(MoveGen.isLegal(board, move.getEncoding()));
+		assertEquals(key, board.getKey());
+		assertEquals(4, parallel.getCompletedDepth());
+	}
+
+	@Test
+	public void laterMovesAreReducedMore() {
+		assertEquals(0, Search.reduction(3, 1));
+		assertTrue(Search.reduction(8, 20) > Search.reduction(8, 4));
+		assertTrue(Search.reduction(12, 10) > Search.reduction(4, 10));
+		// The table stops at its edges
+		assertEquals(Search.reduction(EvalConstants.MAX_PLY - 1, 10),
+				Search.reduction(1000, 10));
+	}
+
+	@Test
+	public void pruningNearTheLeavesSearchesFewerNodes() {
+		String fen = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w -";
+		board.loadFen(fen);
+		search.rootNegamax(board, EvalConstants.WHITE, 60_000, 6);
+		long prunedNodes = search.getNodes();
+		Search unpruned = new Search(1);
+		unpruned.setFutilityPruning(false);
+		unpruned.setReverseFutilityPruning(false);
+		unpruned.setRazoring(false);
+		board.loadFen(fen);
+		unpruned.rootNegamax(board, EvalConstants.WHITE, 60_000, 6);
+		assertTrue(prunedNodes < unpruned.getNodes());
+	}
+
+	@Test
+	public void mtdfFindsTheSameMoves() {
+		search.setStrategy(SearchStrategy.MTDF);
+		board.loadFen("6k1/5ppp/8/8/8/8/8/R5K1 w");
+		Move move = search.rootNegamax(board, EvalConstants.WHITE, 10_000, 4);
+		assertEquals("a1a8", MoveEncoding.toString(move.getEncoding()));
+		assertEquals(EvalConstants.MATE - 1, search.getScore());
+		board.loadFen("4k3/8/8/3q4/8/8/3R4/4K3 w");
+		move = search.rootNegamax(board, EvalConstants.WHITE, 10_000, 4);
+		assertEquals("d2d5", MoveEncoding.toString(move.getEncoding()));
+		assertEquals(move.getEncoding(), search.getPrincipalVariation()[0]);
+	}
+
+	@Test
+	public void extensionsFollowForcingLines() {
+		// Smothered mate, the queen sacrifice with check is extended so the
+		// mate three plies later is found at depth 4
+		board.loadFen("r6k/6pp/7N/8/8/1Q6/8/6K1 w");
+		Move move = search.rootNegamax(board, EvalConstants.WHITE, 10_000, 4);
+		assertEquals("b3g8", MoveEncoding.toString(move.getEncoding()));
+		assertEquals(EvalConstants.MATE - 3, search.getScore());
+	}
+}
@@ -0,0 +1,76 @@
+package eval;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import core.CoreConstants;
+import core.Game;
+import core.MoveEncoding;
+import core.MoveGen;
+
+public class StaticExchangeTest {
+	private StaticExchange exchange;
+	private Game board;
+
+	@Before
+	public void setup() {
+		MoveGen.initialise();
+		exchange = new StaticExchange();
+		board = new Game();
+	}
+
+	// Finds the legal move in long algebraic notation
+	private int findMove(String name) {
+		for (int move : MoveGen.generateMoves(board)) {
+			if (MoveEncoding.toString(move).equals(name)) {
+				return move;
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	@Test
+	public void undefendedPawnIsWon() {
+		board.loadFen("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - -");
+		assertEquals(100, exchange.see(board, findMove("e1e5")));
+	}
+
+	@Test
+	public void knightForPawnLoses() {
+		board.loadFen("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - -");
+		assertEquals(100 - 320, exchange.see(board, findMove("d3e5")));
+	}
+
+	@Test
+	public void rookBehindRookJoinsIn() {
+		board.loadFen("4k3/4r3/8/4p3/8/8/4R3/4R1K1 w - -");
+		assertEquals(100, exchange.see(board, findMove("e2e5")));
+		// Without the second rook the exchange loses the rook for a pawn
+		board.loadFen("4k3/4r3/8/4p3/8/8/4R3/6K1 w - -");
+		assertEquals(100 - 500, exchange.see(board, findMove("e2e5")));
+	}
+
+	@Test
+	public void kingCannotRecaptureADefendedPiece() {
+		board.loadFen("8/8/3k4/4p3/3P4/8/8/6K1 w - -");
+		// Pawn takes pawn, the king takes back
+		assertEquals(0, exchange.see(board, findMove("d4e5")));
+		board.loadFen("8/8/3k4/4p3/3P4/8/4R3/6K1 w - -");
+		// With the rook behind, the king can't take back
+		assertEquals(100, exchange.see(board, findMove("d4e5")));
+	}
+
+	@Test
+	public void enPassantAndPromotions() {
+		board.loadFen("4k3/8/8/3pP3/8/8/8/4K3 w - d6");
+		assertEquals(100, exchange.see(board, findMove("e5d6")));
+		board.loadFen("4k3/P7/8/8/8/8/8/4K3 w - -");
+		assertEquals(EvalConstants.PIECE_VALUES[CoreConstants.WHITE_QUEEN] - 100,
+				exchange.see(board, findMove("a7a8q")));
+		// The new queen is taken straight away
+		board.loadFen("r3k3/1P6/8/8/8/8/8/4K3 w - -");
+		assertEquals(-100, exchange.see(board, findMove("b7b8q")));
+	}
+}
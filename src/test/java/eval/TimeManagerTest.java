@@ -0,0 +1,115 @@
+package eval;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import core.Game;
+import core.Move;
+import core.MoveGen;
+
+public class TimeManagerTest {
+	private Search search;
+	private Game board;
+
+	@Before
+	public void setup() {
+		MoveGen.initialise();
+		search = new Search(1);
+		board = new Game();
+		board.loadFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+	}
+
+	@Test
+	public void stopsAtTheDepthLimit() {
+		TimeManager timeManager = TimeManager.depth(3);
+		timeManager.start();
+		assertTrue(timeManager.nextIteration(2, 1, 0));
+		assertFalse(timeManager.nextIteration(3, 1, 0));
+		search.rootNegamax(board, EvalConstants.WHITE, TimeManager.depth(3));
+		assertEquals(3, search.getCompletedDepth());
+	}
+
+	@Test
+	public void stopsAtTheNodeLimit() {
+		Move move = search.rootNegamax(board, EvalConstants.WHITE, TimeManager.nodes(10_000));
+		assertNotNull(move);
+		assertTrue(MoveGen.isLegal(board, move.getEncoding()));
+		// The limit is checked every so many nodes
+		assertTrue(search.getNodes() <= 10_000 + EvalConstants.NODES_BETWEEN_TIME_CHECKS + 1);
+	}
+
+	@Test
+	public void keepsToTheClock() {
+		long startTime = System.currentTimeMillis();
+		Move move = search.rootNegamax(board, EvalConstants.WHITE, TimeManager.clock(3_000, 0));
+		assertNotNull(move);
+		// Never more than the hard limit, with some allowance for the minimum
+		// depth and the time between checks
+		assertTrue(System.currentTimeMillis() - startTime < 3_000);
+	}
+
+	@Test
+	public void stopWhileIdleIsIgnored() {
+		search.stop();
+		assertFalse(search.isSearching());
+		search.rootNegamax(board, EvalConstants.WHITE, TimeManager.depth(2));
+		assertEquals(2, search.getCompletedDepth());
+	}
+
+	@Test
+	public void stoppedManagerCanBeReused() {
+		TimeManager timeManager = TimeManager.depth(2);
+		timeManager.stop();
+		timeManager.start();
+		assertFalse(timeManager.shouldStop(0));
+		timeManager.stop();
+		search.rootNegamax(board, EvalConstants.WHITE, timeManager);
+		assertEquals(2, search.getCompletedDepth());
+	}
+
+	@Test
+	public void canBeStoppedWhileSearching() throws InterruptedException {
+		Move[] move = new Move[1];
+		Thread thread = new Thread(() -> {
+			move[0] = search.rootNegamax(board, EvalConstants.WHITE, new TimeManager());
+		});
+		thread.start();
+		// An unlimited search only returns once it has been stopped
+		while (!search.isSearching()) {
+			Thread.yield();
+		}
+		search.stop();
+		thread.join(10_000);
+		assertFalse(thread.isAlive());
+		assertFalse(search.isSearching());
+		assertNotNull(move[0]);
+		assertTrue(MoveGen.isLegal(board, move[0].getEncoding()));
+	}
+
+	@Test
+	public void stopRequestIsSeenStraightAway() {
+		TimeManager timeManager = new TimeManager();
+		timeManager.start();
+		assertFalse(timeManager.shouldStop(0));
+		timeManager.stop();
+		assertTrue(timeManager.shouldStop(0));
+		assertFalse(timeManager.nextIteration(1, 1, 0));
+	}
+
+	@Test
+	public void hardLimitAppliesAtEveryDepth() {
+		TimeManager timeManager = TimeManager.moveTime(0);
+		timeManager.start();
+		assertTrue(timeManager.shouldStop(0));
+		assertFalse(timeManager.nextIteration(1, 1, 0));
+		// Even with no time at all there is a move from the first iteration
+		Move move = search.rootNegamax(board, EvalConstants.WHITE, TimeManager.moveTime(0));
+		assertNotNull(move);
+		assertTrue(MoveGen.isLegal(board, move.getEncoding()));
+	}
+}
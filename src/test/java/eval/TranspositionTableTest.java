@@ -0,0 +1,58 @@
+package eval;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import core.CoreConstants;
+import core.MoveEncoding;
+
+public class TranspositionTableTest {
+
+	@Test
+	public void entriesArePackedAndUnpacked() {
+		TranspositionTable table = new TranspositionTable(1);
+		int move = MoveEncoding.create(CoreConstants.WHITE_PAWN, 52, 60, CoreConstants.BLACK_ROOK,
+				CoreConstants.WHITE_QUEEN, CoreConstants.noCastle, 0);
+		table.store(0x1234_5678_9ABC_DEF0L, -20330, 12, TranspositionTable.LOWERBOUND, move);
+		long entry = table.probe(0x1234_5678_9ABC_DEF0L);
+		assertEquals(move, TranspositionTable.getMove(entry));
+		assertEquals(-20330, TranspositionTable.getScore(entry));
+		assertEquals(12, TranspositionTable.getDepth(entry));
+		assertEquals(TranspositionTable.LOWERBOUND, TranspositionTable.getBound(entry));
+		// A different key in the same bucket is not found
+		assertEquals(0, table.probe(0x1234_5678_9ABC_DEF1L ^ 1L << 40));
+	}
+
+	@Test
+	public void deepEntriesSurviveUntilANewSearch() {
+		TranspositionTable table = new TranspositionTable(1);
+		// Keys differing only in the high bits share a bucket
+		long deep = 1L << 40;
+		long first = 2L << 40;
+		long second = 3L << 40;
+		table.store(deep, 100, 10, TranspositionTable.EXACT, MoveEncoding.NO_MOVE);
+		table.store(first, 200, 2, TranspositionTable.EXACT, MoveEncoding.NO_MOVE);
+		table.store(second, 300, 2, TranspositionTable.EXACT, MoveEncoding.NO_MOVE);
+		// The shallow entries replace each other but not the deep one
+		assertEquals(100, TranspositionTable.getScore(table.probe(deep)));
+		assertEquals(0, table.probe(first));
+		assertEquals(300, TranspositionTable.getScore(table.probe(second)));
+		// Entries from an old search are replaced whatever their depth
+		table.newSearch();
+		table.store(first, 200, 1, TranspositionTable.EXACT, MoveEncoding.NO_MOVE);
+		assertEquals(0, table.probe(deep));
+		assertEquals(200, TranspositionTable.getScore(table.probe(first)));
+	}
+
+	@Test
+	public void bestMoveIsKeptWhenNoneIsStored() {
+		TranspositionTable table = new TranspositionTable(1);
+		int move = MoveEncoding.create(CoreConstants.WHITE_KNIGHT, 6, 21, CoreConstants.EMPTY,
+				CoreConstants.EMPTY, CoreConstants.noCastle, 0);
+		table.store(42, 10, 3, TranspositionTable.EXACT, move);
+		table.store(42, -5, 4, TranspositionTable.UPPERBOUND, MoveEncoding.NO_MOVE);
+		assertEquals(move, TranspositionTable.getMove(table.probe(42)));
+		assertEquals(-5, TranspositionTable.getScore(table.probe(42)));
+	}
+}